@@ -0,0 +1,182 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.jmh.java.com.adonax.audiocue;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.main.java.com.adonax.audiocue.AudioCue;
+
+/**
+ * JMH benchmark of the render path of a single {@code AudioCue},
+ * one buffer of {@code BUFFER_FRAMES} frames per operation. The 
+ * cue is rendered offline, which runs the same code as a cue 
+ * open on a line or an {@code AudioMixer}, without the output.
+ * <p>
+ * The parameters are the number of playing voices, the speed at 
+ * which they play, and which of the volume, pan and speed ramps
+ * are kept running. The secondary result {@code voicesPerCore} is
+ * the number of voices that one core renders in real time at 
+ * 44100 frames per second.
+ * <p>
+ * Run with {@code gradlew jmh}, or for this class only with
+ * {@code gradlew jmh -PjmhArgs=CueRenderBenchmark}.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CueRenderBenchmark 
+{
+	static final int BUFFER_FRAMES = 1024;
+	static final double BUFFER_SECONDS = BUFFER_FRAMES / 44100.0;
+	
+	public enum Ramps { NONE, VOLUME, PAN, SPEED, ALL }
+	
+	@Param({"1", "16", "64", "256"})
+	public int voices;
+	
+	@Param({"1.0", "0.83", "2.5"})
+	public double speed;
+	
+	@Param
+	public Ramps ramps;
+	
+	private AudioCue cue;
+	private int[] hooks;
+	private float[] out;
+	private boolean upward;
+	
+	/**
+	 * Counts the voices rendered, each weighted by the duration
+	 * of a buffer, so that the rate JMH reports is the number of
+	 * voices rendered in real time.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Voices
+	{
+		public double voicesPerCore;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			voicesPerCore = 0;
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		cue = AudioCue.makeStereoCue(makeNoise(44100 * 4), 
+				"noise", voices);
+		hooks = new int[voices];
+		for (int i = 0; i < voices; i++)
+		{
+			hooks[i] = cue.play(0.5, 0, speed, -1);
+		}
+		out = new float[BUFFER_FRAMES * 2];
+	}
+	
+	@Benchmark
+	public float[] render(Voices counter)
+	{
+		if (ramps != Ramps.NONE)
+		{
+			retarget();
+		}
+		cue.render(out, 0, BUFFER_FRAMES);
+		counter.voicesPerCore += voices * BUFFER_SECONDS;
+		return out;
+	}
+	
+	/*
+	 * Points the selected ramps at the opposite end of their 
+	 * range, over a span longer than a buffer, so that every
+	 * buffer is rendered with the ramps in progress.
+	 */
+	private void retarget()
+	{
+		upward = !upward;
+		for (int hook : hooks)
+		{
+			if (ramps == Ramps.VOLUME || ramps == Ramps.ALL)
+			{
+				cue.setVolume(hook, upward ? 0.6 : 0.4, 100);
+			}
+			if (ramps == Ramps.PAN || ramps == Ramps.ALL)
+			{
+				cue.setPan(hook, upward ? 0.5 : -0.5, 100);
+			}
+			if (ramps == Ramps.SPEED || ramps == Ramps.ALL)
+			{
+				cue.setSpeed(hook, upward ? speed * 1.1 : speed, 100);
+			}
+		}
+	}
+	
+	static float[] makeNoise(int frames)
+	{
+		Random random = new Random(1);
+		float[] data = new float[frames * 2];
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (float)(random.nextGaussian() * 0.2);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.jmh.java.com.adonax.audiocue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.main.java.com.adonax.audiocue.AudioCue;
+import src.main.java.com.adonax.audiocue.SampleStorage;
+
+/**
+ * JMH benchmark of loading an {@code AudioCue} from one of the
+ * wav files of the support pack, one load per operation.
+ * <p>
+ * The secondary result {@code timesRealTime} is the number of 
+ * seconds of audio that one core loads per second.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadBenchmark 
+{
+	@Param({"a3.wav", "frog.wav", "gunshot.wav", "shortshot.wav"})
+	public String file;
+	
+	@Param({"FLOAT", "PCM16"})
+	public SampleStorage storage;
+	
+	private URL url;
+	
+	/**
+	 * Counts the seconds of audio loaded, so that the rate JMH
+	 * reports is the multiple of real time at which files load.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Seconds
+	{
+		public double timesRealTime;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			timesRealTime = 0;
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		url = AudioCue.class.getResource("supportpack/res/" + file);
+	}
+	
+	@Benchmark
+	public AudioCue load(Seconds counter) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		AudioCue cue = AudioCue.makeStereoCue(url, 1, storage);
+		counter.timesRealTime += cue.getFrameLength() / 44100.0;
+		return cue;
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.jmh.java.com.adonax.audiocue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.main.java.com.adonax.audiocue.AudioCue;
+import src.main.java.com.adonax.audiocue.AudioMixer;
+
+/**
+ * JMH benchmark of the mix of an {@code AudioMixer}, one buffer 
+ * of {@code BUFFER_FRAMES} frames per operation, as the number 
+ * of tracks grows. Each track is an {@code AudioCue} playing a 
+ * single voice. The mixer is rendered offline, which runs the 
+ * same code as the mixer's audio thread, without the output.
+ * <p>
+ * The secondary result {@code voicesPerCore} is the number of 
+ * tracks that one core mixes in real time at 44100 frames per 
+ * second.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MixerBenchmark 
+{
+	@Param({"1", "10", "100", "1000"})
+	public int tracks;
+	
+	private AudioMixer audioMixer;
+	private AudioCue[] cues;
+	private float[] out;
+	
+	/**
+	 * Counts the tracks mixed, each weighted by the duration
+	 * of a buffer, so that the rate JMH reports is the number of
+	 * tracks mixed in real time.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Voices
+	{
+		public double voicesPerCore;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			voicesPerCore = 0;
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		float[] data = CueRenderBenchmark.makeNoise(44100 * 4);
+		audioMixer = new AudioMixer(null, 
+				CueRenderBenchmark.BUFFER_FRAMES, 10);
+		cues = new AudioCue[tracks];
+		for (int i = 0; i < tracks; i++)
+		{
+			cues[i] = AudioCue.makeStereoCue(data, "noise", 1);
+			cues[i].open(audioMixer);
+			cues[i].play(0.5 / tracks, 0, 0.83, -1);
+		}
+		out = new float[CueRenderBenchmark.BUFFER_FRAMES * 2];
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown()
+	{
+		for (AudioCue cue : cues) cue.close();
+	}
+	
+	@Benchmark
+	public float[] mix(Voices counter)
+	{
+		audioMixer.render(out, 0, CueRenderBenchmark.BUFFER_FRAMES);
+		counter.voicesPerCore += tracks * CueRenderBenchmark.BUFFER_SECONDS;
+		return out;
+	}
+}
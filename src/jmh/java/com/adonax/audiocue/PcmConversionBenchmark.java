@@ -0,0 +1,112 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.jmh.java.com.adonax.audiocue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import src.main.java.com.adonax.audiocue.AudioCue;
+
+/**
+ * JMH benchmark of the conversion of a buffer of normalized 
+ * floats to the 16-bit PCM bytes written to an output line, one
+ * buffer of {@code BUFFER_FRAMES} frames per operation.
+ * <p>
+ * The secondary result {@code linesPerCore} is the number of 
+ * output lines that one core keeps supplied in real time at 
+ * 44100 frames per second.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PcmConversionBenchmark 
+{
+	private float[] buffer;
+	private byte[] bytes;
+	
+	/**
+	 * Counts the buffers converted, each weighted by its 
+	 * duration, so that the rate JMH reports is the number of
+	 * lines supplied in real time.
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Lines
+	{
+		public double linesPerCore;
+		
+		@Setup(Level.Iteration)
+		public void reset()
+		{
+			linesPerCore = 0;
+		}
+	}
+	
+	@Setup(Level.Trial)
+	public void setup()
+	{
+		buffer = CueRenderBenchmark.makeNoise(
+				CueRenderBenchmark.BUFFER_FRAMES);
+		bytes = new byte[CueRenderBenchmark.BUFFER_FRAMES * 4];
+	}
+	
+	@Benchmark
+	public byte[] toPcm16(Lines counter)
+	{
+		counter.linesPerCore += CueRenderBenchmark.BUFFER_SECONDS;
+		return AudioCue.fromBufferToAudioBytes(bytes, buffer);
+	}
+}
@@ -36,11 +36,17 @@
  */
 package src.main.java.com.adonax.audiocue;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.LinkedBlockingDeque;
-import java.util.function.Function;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.DoubleUnaryOperator;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -89,11 +95,23 @@ import javax.sound.sampled.UnsupportedAudioFileException;
  * pitch-based effects such as Doppler shifting.
  * <p>
  * Internally, a {@code javax.sound.sampled.SourceDataLine} 
- * is used for output. When you {@code open} the {@code AudioCue},
+ * is used for output, unless another {@code OutputSink} is 
+ * assigned via {@code setOutputSink}. When you {@code open} the {@code AudioCue},
  * the line is configured with a buffer size of 1024
  * frames (4192 bytes) and a thread priority of {@code 
  * HIGHEST}. Alternative values can be specified as parameters
  * to the {@code open} method. 
+ * <p>
+ * The instance controls can be called from any thread. While 
+ * the {@code AudioCue} is open, each call is placed on a 
+ * lock-free queue and applied by the audio thread at the start
+ * of the next buffer, so no setting changes partway through a
+ * buffer. The getters for volume, pan, speed and position 
+ * report the values in use by the audio thread, and so do not 
+ * reflect a change until it has been applied. The queue holds 
+ * sixteen calls per instance, and at least 256; a call that 
+ * finds it full waits for the audio thread to empty it at the 
+ * next buffer, rather than failing.
  * 
  * @author Philip Freihofner
  * @version AudioCue 1.1
@@ -107,19 +125,59 @@ public class AudioCue implements AudioMixerTrack
 	public static final Info info =	
 			new DataLine.Info(SourceDataLine.class, audioFormat);
 	
-	private final int VOLUME_STEPS = 1024;
-	private final int SPEED_STEPS = 1024 * 4;
-	private final int PAN_STEPS = 1024;
+	// default ramp lengths, in frames, for real time changes
+	private final int VOLUME_RAMP_FRAMES = 1024;
+	private final int SPEED_RAMP_FRAMES = 1024 * 4;
+	private final int PAN_RAMP_FRAMES = 1024;
 	private final int DEFAULT_BUFFER_FRAMES = 1024 ;
+	// longest run of frames interpolated in one pass
+	private final int SEGMENT_FRAMES = 256;
+	// longest run over which the gains of a ramping pan are 
+	// interpolated linearly, so that they follow the pan law
+	private final int PAN_STEP_FRAMES = 64;
 	
-	private final LinkedBlockingDeque<AudioCueCursor> availables;
+	// one bit per cursor, set while in the pool of availables
+	private final AtomicLongArray availables;
+	// where the next search of the availables begins, so that 
+	// released cursors are reused in turn rather than at once
+	private volatile int nextAvailable;
+	private final CueData data;
+	// the data as floats, or null when held in another form
 	private final float[] cue;
-	private final int cueFrameLength;
+	private final long cueFrameLength;
 	private final AudioCueCursor[] cursors;
 	private final int polyphony;
+	// one bit per cursor, set while playing, so that rendering 
+	// skips idle cursors without visiting them
+	private final AtomicLongArray playingCursors;
+	// instance control calls, applied by the audio thread
+	private final CommandQueue commands;
+	private final CommandQueue.Handler commandHandler = this::applyCommand;
+	
+	// operation codes for the CommandQueue
+	private static final int CMD_START = 0;
+	private static final int CMD_STOP = 1;
+	private static final int CMD_RELEASE = 2;
+	private static final int CMD_POSITION = 3;
+	private static final int CMD_VOLUME = 4;
+	private static final int CMD_PAN = 5;
+	private static final int CMD_SPEED = 6;
+	private static final int CMD_INTERPOLATION = 7;
+	private static final int CMD_LOOP = 8;
+	private static final int CMD_RECYCLE = 9;
+	private static final Interpolation[] INTERPOLATIONS = 
+			Interpolation.values();
 	
 	private volatile boolean playerRunning;
+	// set by the audio thread while it renders a buffer of the 
+	// open cue, so that close can wait the buffer out
+	private volatile boolean inBlock;
 	private float[] readBuffer;
+	// audio thread work areas for interpolation
+	private final float[] segmentBuffer;
+	private final float[] edgeWindow;
+	// frames read from data not held as floats, for a segment
+	private final float[] readWindow;
 	
 	
 	private String name;
@@ -137,28 +195,68 @@ public class AudioCue implements AudioMixerTrack
 	public void setName(String name) {this.name = name;}
 	
 	// only stored if AudioMixer is opened:
-	private AudioMixer audioMixer; 
+	private volatile AudioMixer audioMixer; 
+	private volatile OutputSink outputSink;
+	// the clock of the standalone player, or of the AudioMixer
+	private final FrameClock playerClock = new FrameClock();
+	private volatile FrameClock clock = playerClock;
+	// allocated on the first offline render
+	private OfflineRender offline;
+	// clock frame of the first frame of the buffer being rendered
+	private long blockFrame;
+	// clock frame on which queued commands take effect
+	private long commandFrame;
 	
 	private CopyOnWriteArrayList<AudioCueListener> listeners;
+	// instance events, delivered off the audio thread
+	private final InstanceEventQueue events;
 	
 	/**
 	 * Registers an {@code AudioCueListener} to receive 
 	 * notifications of events pertaining to the {@code AudioCue}
 	 * and its playing or playable instances.
 	 * <p> 
-	 * Notifications occur on the thread which processes the
-	 * audio signal, and includes events such as the starting, 
-	 * stopping, and looping of instances. Implementations of 
-	 * the methods that receive these notifications should be 
-	 * coded for brevity in order to minimize extraneous 
-	 * processing on the audio thread.
+	 * Notifications of instance events, such as the starting, 
+	 * stopping, and looping of instances, are queued when the 
+	 * event occurs and delivered in order on a separate thread 
+	 * that is shared by all {@code AudioCue}s, or via the 
+	 * {@code Executor} given to {@code setEventExecutor}. Thus
+	 * a slow listener does not hold up the audio thread, but a 
+	 * listener that falls far enough behind causes events to be
+	 * dropped, as counted by {@code getDroppedEventCount}. The 
+	 * opening and closing of the {@code AudioCue} are notified
+	 * on the thread that calls {@code open} or {@code close}.
 	 * 
 	 * @param listener a class implementing the 
 	 * {@code AudioCueListener} interface
 	 */
 	public void addAudioCueListener(AudioCueListener listener)
+	{
+		addAudioCueListener(listener, EnumSet.allOf(Type.class));
+	}
+	
+	/**
+	 * Registers an {@code AudioCueListener} to receive 
+	 * notifications of the opening and closing of the 
+	 * {@code AudioCue}, and of the instance events of the given 
+	 * types only. For example, a listener that is only concerned
+	 * with instances finishing can avoid receiving the 
+	 * {@code LOOP} events of a short looping cue with 
+	 * {@code EnumSet.of(Type.STOP_INSTANCE, Type.RELEASE_INSTANCE)}.
+	 * No event is queued or created for a type that no listener 
+	 * has registered for. In all other respects, this method is 
+	 * the same as {@code addAudioCueListener(AudioCueListener)}.
+	 * 
+	 * @param listener a class implementing the 
+	 * {@code AudioCueListener} interface
+	 * @param types an {@code EnumSet} of the 
+	 * {@code AudioCueInstanceEvent.Type}s to be received
+	 */
+	public void addAudioCueListener(AudioCueListener listener, 
+			EnumSet<Type> types)
 	{
 		listeners.add(listener);
+		events.subscribe(listener, types);
 	}
 	
 	/**
@@ -172,6 +270,35 @@ public class AudioCue implements AudioMixerTrack
 	public void removeAudioCueListener(AudioCueListener listener)
 	{
 		listeners.remove(listener);
+		events.unsubscribe(listener);
+	}
+	
+	/**
+	 * Assigns an {@code Executor} to run the delivery of instance 
+	 * events to the listeners, for example one that runs tasks on
+	 * the thread of a GUI or of a game loop. Each event is handed
+	 * to the {@code Executor} as a separate task. With the default
+	 * value of {@code null}, events are delivered directly by the 
+	 * dispatching thread that is shared by all {@code AudioCue}s.
+	 * 
+	 * @param executor an {@code Executor}, or {@code null}
+	 */
+	public void setEventExecutor(Executor executor)
+	{
+		events.executor = executor;
+	}
+	
+	/**
+	 * Returns the number of instance events that could not be 
+	 * delivered because too many were awaiting delivery, which
+	 * happens if the listeners take more time to process events
+	 * than is available between them.
+	 * 
+	 * @return the count of dropped events as a {@code long}
+	 */
+	public long getDroppedEventCount()
+	{
+		return events.getDropped();
 	}
 	
 	/**
@@ -179,7 +306,10 @@ public class AudioCue implements AudioMixerTrack
 	 * used to perform volume-based panning for stereo media. 
 	 * Each function takes a pan setting as an input, ranging 
 	 * from -1 (100% left) to 1 (100% right) with 0 being the 
-	 * center pan setting. 
+	 * center pan setting. The functions are held as 
+	 * table-driven {@code PanLaw}s. Custom laws can be 
+	 * created as a {@code PanLaw} and assigned via 
+	 * {@code setPanLaw}.
 	 * <p>
 	 * In the future, if or when mono media is implemented, a 
 	 * delay-based panning function option will be added.
@@ -202,7 +332,7 @@ public class AudioCue implements AudioMixerTrack
 		CENTER_LINEAR(  
 				x -> Math.max(0, Math.min(1, 1 - x)),
 				x -> Math.max(0, Math.min(1, 1 + x))
-				), 
+				),
 		/**
 		 * Represents a panning function that uses linear 
 		 * gradients that taper from edge to edge, and the 
@@ -227,23 +357,27 @@ public class AudioCue implements AudioMixerTrack
 		 * function with values ranging from 0 to 1.
 		 */
 		CIRCULAR(
-				x -> (float)(Math.cos(Math.PI * (1 + x) / 4)),
-				x -> (float)(Math.sin(Math.PI * (1 + x) / 4))
+				x -> Math.cos(Math.PI * (1 + x) / 4),
+				x -> Math.sin(Math.PI * (1 + x) / 4)
 				);
 	
-		private final Function<Float, Float> left;
-		private final Function<Float, Float> right;
+		private final PanLaw panLaw;
 	
-		PanType(Function<Float, Float> left, 
-				Function<Float, Float> right)
+		PanType(DoubleUnaryOperator left, DoubleUnaryOperator right)
 		{
-			this.left = left;
-			this.right = right;
+			panLaw = new PanLaw(name(), left, right);
 		}
+		
+		/**
+		 * Returns the table-driven {@code PanLaw} that 
+		 * implements this type of panning.
+		 * 
+		 * @return the {@code PanLaw} of this {@code PanType}
+		 */
+		public PanLaw getPanLaw() { return panLaw; }
 	}
 		
-	private Function<Float, Float> panL;
-	private Function<Float, Float> panR;
+	private PanLaw panLaw;
 	
 	/**
 	 * Assigns the type of panning to be used.
@@ -254,10 +388,56 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public void setPanType(PanType panType)
 	{
-		panL = panType.left;
-		panR = panType.right;
+		setPanLaw(panType.panLaw);
+	}
+	
+	/**
+	 * Assigns the {@code PanLaw} to be used, allowing custom 
+	 * panning functions in addition to those provided by 
+	 * {@code PanType}.
+	 * 
+	 * @param panLaw the {@code PanLaw} to be used
+	 * @see PanLaw
+	 */
+	public void setPanLaw(PanLaw panLaw)
+	{
+		this.panLaw = panLaw;
 	}
 			
+	private volatile Interpolation interpolation = Interpolation.LINEAR;
+	
+	/**
+	 * Assigns the method of interpolation to be used by 
+	 * instances obtained from now on. Instances that are 
+	 * already active keep their current setting, which can 
+	 * be changed via {@code setInterpolation(int, Interpolation)}.
+	 * The default is {@code Interpolation.LINEAR}.
+	 * 
+	 * @param interpolation a member of the {@code enum 
+	 * Interpolation}
+	 * @see Interpolation
+	 */
+	public void setInterpolation(Interpolation interpolation)
+	{
+		this.interpolation = interpolation;
+	}
+	
+	/**
+	 * Returns the method of interpolation assigned to newly 
+	 * obtained instances.
+	 * 
+	 * @return the default {@code Interpolation} of this 
+	 * {@code AudioCue}
+	 */
+	public Interpolation getInterpolation() { return interpolation; }
+	
+	/**
+	 * Returns the {@code PanLaw} currently used for panning.
+	 * 
+	 * @return the current {@code PanLaw}
+	 */
+	public PanLaw getPanLaw() { return panLaw; }
+	
 	/**
 	 * Creates and returns a new AudioCue. This method 
 	 * allows the direct insertion of a {@code float} 
@@ -283,15 +463,47 @@ public class AudioCue implements AudioMixerTrack
 	public static AudioCue makeStereoCue(float[] cue, 
 			String name, int polyphony)
 	{
-		return new AudioCue(cue, name, polyphony);
+		return makeStereoCue(cue, name, polyphony, SampleStorage.FLOAT);
+	}
+	
+	/**
+	 * Creates and returns a new AudioCue from a {@code float} 
+	 * array of "CD Quality" audio data, as does 
+	 * {@code makeStereoCue(float[], String, int)}, holding the
+	 * data in the given form. With {@code SampleStorage.PCM16}
+	 * the data is copied into a 16-bit array, half the size of
+	 * the {@code float} array, which is not retained. With 
+	 * {@code SampleStorage.MAPPED} it is written, as 16-bit 
+	 * data, to a temporary file that is mapped into memory.
+	 * 
+	 * @param cue a {@code float} array of audio data
+	 * in "CD Quality" format, scaled to the range 
+	 * [-1, 1]
+	 * @param name a {@code String} to be associated
+	 * with the {@code AudioCue}
+	 * @param polyphony an {@code int} specifying 
+	 * the maximum number of concurrent instances
+	 * @param storage the {@code SampleStorage} form in which
+	 * the audio data is held
+	 * @return AudioCue
+	 * @throws UncheckedIOException if the temporary file for 
+	 * {@code MAPPED} data can not be written
+	 */
+	public static AudioCue makeStereoCue(float[] cue, 
+			String name, int polyphony, SampleStorage storage)
+	{
+		return new AudioCue(CueData.of(cue, storage), name, polyphony);
 	}
 	
 	/**
 	 * Creates and returns a new AudioCue. A {@code URL} 
-	 * for a WAV file to be loaded is provided. At this
-	 * point, only one format, known as "CD Quality", is
-	 * supported: 44100 frames per second, 16-bit encoding, 
-	 * stereo, little-endian. The maximum number of 
+	 * for an audio file to be loaded is provided. The file
+	 * may be in any PCM format that {@code AudioSystem} can 
+	 * read: mono or stereo, 8, 16, 24 or 32-bit integers or 
+	 * floating point values, either byte order, at any sample 
+	 * rate. It is converted once, as it is loaded, to the 
+	 * format used for playback, "CD Quality": 44100 frames per
+	 * second, stereo. The maximum number of 
 	 * concurrent playing instances is given as
 	 * the {@code polyphony} argument. The {@code polyphony}
 	 * value can not be changed. A large value may require
@@ -307,101 +519,125 @@ public class AudioCue implements AudioMixerTrack
 	 * the maximum number of concurrent instances
 	 * @return AudioCue
 	 * @throws UnsupportedAudioFileException if the media
-	 * is not a WAV file of "CD Quality"
+	 * is not audio that can be read as PCM
 	 * @throws IOException if unable to load the file
 	 */
 	public static AudioCue makeStereoCue(URL url, int polyphony) 
 			throws UnsupportedAudioFileException, IOException
+	{
+		return makeStereoCue(url, polyphony, SampleStorage.FLOAT);
+	}
+	
+	/**
+	 * Creates and returns a new AudioCue from an audio file, as
+	 * does {@code makeStereoCue(URL, int)}, holding the audio 
+	 * data in the given form. {@code SampleStorage.PCM16} halves
+	 * the memory held by the cue, and is without loss for 
+	 * sources of 16 bits or fewer. {@code SampleStorage.MAPPED}
+	 * holds the data in a memory-mapped file instead of on the
+	 * heap, and is not limited in length by the size of an 
+	 * array. A local wav or RF64 file that is already 16-bit 
+	 * "CD Quality" is mapped as it is; other sources are first 
+	 * converted into a temporary file.
+	 * 
+	 * @param url a {@code URL} for the source file 
+	 * @param polyphony an {@code int} specifying 
+	 * the maximum number of concurrent instances
+	 * @param storage the {@code SampleStorage} form in which
+	 * the audio data is held
+	 * @return AudioCue
+	 * @throws UnsupportedAudioFileException if the media
+	 * is not audio that can be read as PCM
+	 * @throws IOException if unable to load the file
+	 */
+	public static AudioCue makeStereoCue(URL url, int polyphony,
+			SampleStorage storage) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		CueData data = storage == SampleStorage.MAPPED 
+				? AudioLoader.map(url)
+				: CueData.of(AudioLoader.load(url), storage);
+		
+		return new AudioCue(data, nameOf(url), polyphony);
+	}
+	
+	// the file name of the URL
+	static String nameOf(URL url)
 	{
 		String urlName = url.getPath();
 		int urlLen = urlName.length();
-		String name = urlName.substring(urlName.lastIndexOf("/") + 1, urlLen);
-		float[] cue = AudioCue.loadURL(url);
-		
-		return new AudioCue(cue, name, polyphony);
+		return urlName.substring(urlName.lastIndexOf("/") + 1, urlLen);
 	}
 	
 	/**
 	 * Private constructor, used internally.
 	 * 
-	 * @param cue a {@code float} array of audio data
-	 * in "CD Quality" format, scaled to the range [-1..1]
+	 * @param data the {@code CueData} holding the audio data
+	 * in "CD Quality" format
 	 * @param name a {@code String} to be associated
 	 * with the {@code AudioCue}
 	 * @param polyphony an {@code int} specifying 
 	 * the maximum number of concurrent instances
 	 */
-	private AudioCue(float[] cue, String name, int polyphony)
+	private AudioCue(CueData data, String name, int polyphony)
 	{
-		this.cue = cue;
-		this.cueFrameLength = cue.length / 2;
+		this.data = data;
+		this.cue = data.floats();
+		this.cueFrameLength = data.frames();
 		this.polyphony = polyphony;
 		this.name = name;
 		
-		availables = 
-				new LinkedBlockingDeque<AudioCueCursor>(polyphony);
+		availables = new AtomicLongArray((polyphony + 63) >> 6);
 		cursors = new AudioCueCursor[polyphony];
+		playingCursors = new AtomicLongArray((polyphony + 63) >> 6);
+		commands = new CommandQueue(Math.max(256, polyphony * 16));
 		
 		for (int i = 0; i < polyphony; i++)
 		{	
 			cursors[i] = new AudioCueCursor(i);
 			cursors[i].resetInstance();
-			availables.add(cursors[i]);
+			setBit(availables, i, true);
 		}
 		
 		// default pan calculation function
 		setPanType(PanType.CENTER_LINEAR);
 		
+		segmentBuffer = new float[SEGMENT_FRAMES * 2];
+		// large enough for the widest interpolation, at top speed
+		int windowFrames = 0;
+		for (Interpolation ip : Interpolation.values())
+		{
+			windowFrames = Math.max(windowFrames, 
+					ip.before(8) + ip.after(8) + 1);
+		}
+		edgeWindow = new float[windowFrames * 2];
+		// a segment at top speed, with its neighborhood
+		readWindow = cue != null ? null 
+				: new float[(SEGMENT_FRAMES * 8 + windowFrames + 2) * 2];
+		
 		listeners = new CopyOnWriteArrayList<AudioCueListener>();
+		events = new InstanceEventQueue(this, 
+				Math.max(256, polyphony * 8));
 	}
 	
-	// Currently assumes stereo format ("CD Quality") 
-	private static float[] loadURL(URL url) throws 
-		UnsupportedAudioFileException, IOException
+	
+	/**
+	 * Assigns the {@code OutputSink} to which the audio is 
+	 * written when this {@code AudioCue} is played with its own
+	 * player, taking effect the next time it is opened. With the
+	 * default value of {@code null}, the audio is played through
+	 * a {@code SourceDataLine}, obtained from the {@code Mixer} 
+	 * given to {@code open}. An {@code AudioCue} opened on an 
+	 * {@code AudioMixer} is written to the sink of the 
+	 * {@code AudioMixer} instead.
+	 * 
+	 * @param outputSink an {@code OutputSink}, or {@code null}
+	 * @see OutputSink
+	 */
+	public void setOutputSink(OutputSink outputSink)
 	{
-		AudioInputStream ais = AudioSystem.getAudioInputStream(url);
-
-		int framesCount = 0;
-		if (ais.getFrameLength() > Integer.MAX_VALUE >> 1)
-		{
-			System.out.println(
-					"WARNING: Clip is too large to entirely fit!");
-			framesCount = Integer.MAX_VALUE >> 1;
-		}
-		else
-		{
-			framesCount = (int)ais.getFrameLength();
-		}
-		
-		// stereo output, so two entries per frame
-		float[] temp = new float[framesCount * 2];
-		long tempCountdown = temp.length;
-
-		int bytesRead = 0;
-		int bufferIdx;
-		int clipIdx = 0;
-		byte[] buffer = new byte[1024];
-		while((bytesRead = ais.read(buffer, 0, 1024)) != -1)
-		{
-			bufferIdx = 0;
-			for (int i = 0, n = (bytesRead >> 1); i < n; i ++)
-			{
-				if ( tempCountdown-- >= 0)
-				{
-					temp[clipIdx++] = 
-							( buffer[bufferIdx++] & 0xff )
-							| ( buffer[bufferIdx++] << 8 ) ;
-				}
-			}
-		}
-		
-		for (int i = 0; i < temp.length; i++)
-		{
-			temp[i] = temp[i] / 32767f;
-		}
-		
-		return temp;
-	}	
+		this.outputSink = outputSink;
+	}
 	
 	/**
 	 * Allocates resources for media play, using default
@@ -461,11 +697,20 @@ public class AudioCue implements AudioMixerTrack
 					"Already open.");
 		}
 		
-		AudioCuePlayer player = new AudioCuePlayer(mixer, bufferFrames);
+		OutputSink sink = outputSink;
+		AudioCuePlayer player = new AudioCuePlayer(
+				sink == null ? new SourceDataLineSink(mixer) : sink, 
+				bufferFrames);
 		Thread t = new Thread(player);
 
 		t.setPriority(threadPriority);     
-		playerRunning = true;
+		// control calls are queued for the player from now on
+		synchronized (commands)
+		{
+			// apply anything left over from a previous opening
+			commands.drain(commandHandler);
+			playerRunning = true;
+		}
 		t.start();
 		
 		broadcastOpenEvent(t.getPriority(), bufferFrames, name);
@@ -489,8 +734,14 @@ public class AudioCue implements AudioMixerTrack
 			throw new IllegalStateException(
 					"Already open.");
 		}
-		playerRunning = true;
-		this.audioMixer = audioMixer;
+		// control calls are queued once the mixer renders
+		synchronized (commands)
+		{
+			commands.drain(commandHandler);
+			clock = audioMixer.clock;
+			this.audioMixer = audioMixer;
+			playerRunning = true;
+		}
 		
 		// assigned size is frames * stereo
 		readBuffer = new float[audioMixer.bufferSize * 2];
@@ -525,11 +776,134 @@ public class AudioCue implements AudioMixerTrack
 			audioMixer = null;
 		}
 		
-		playerRunning = false;
+		// control calls are applied directly from now on, so the
+		// buffer an audio thread began while the cue was open must
+		// be finished first
+		synchronized (commands)
+		{
+			playerRunning = false;
+			while (inBlock) Thread.yield();
+		}
+		clock = playerClock;
 		
 		broadcastCloseEvent(name);
 	}
 	
+	/*
+	 * Offline rendering, into the start of a zero-filled buffer.
+	 */
+	private void renderBlock(float[] buffer, int frames)
+	{
+		Arrays.fill(buffer, 0, frames * 2, 0);
+		renderInto(buffer, 0, frames);
+		playerClock.advance(frames);
+	}
+	
+	/*
+	 * The work buffers of the offline render are only allocated 
+	 * if it is used. Offline rendering is confined to one thread
+	 * at a time, like the audio thread it stands in for.
+	 */
+	private OfflineRender offline()
+	{
+		if (offline == null)
+		{
+			offline = new OfflineRender(this::renderBlock, DEFAULT_BUFFER_FRAMES);
+		}
+		return offline;
+	}
+	
+	private void checkOffline() throws IllegalStateException
+	{
+		if (playerRunning) throw new IllegalStateException(
+				name + " is open for playback.");
+	}
+	
+	/**
+	 * Renders the playing instances offline, as fast as the cpu
+	 * allows, rather than in real time to an output line. The
+	 * {@code AudioCue} must be closed; to render a cue along with
+	 * others, use the offline rendering of an {@code AudioMixer}
+	 * instead. The rendering runs on the calling thread and 
+	 * advances the clock given by {@code getFrameTime}, so 
+	 * instances scheduled to start on a given frame start on 
+	 * that frame, and changes made between two calls take effect
+	 * on the first frame of the second.
+	 * 
+	 * @param out a {@code float} array to receive the stereo
+	 * frames, as normalized values
+	 * @param offset an {@code int} specifying the first frame 
+	 * of out to be written
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to render
+	 * @throws IllegalStateException if the {@code AudioCue} is
+	 * open
+	 */
+	public void render(float[] out, int offset, int frames)
+			throws IllegalStateException
+	{
+		checkOffline();
+		offline().toFloats(out, offset, frames);
+	}
+	
+	/**
+	 * Renders the given number of frames offline, returning them
+	 * in a new array. In all other respects, this method is the
+	 * same as {@code render(float[], int, int)}.
+	 * 
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to render
+	 * @return a {@code float} array of stereo frames
+	 * @throws IllegalStateException if the {@code AudioCue} is
+	 * open
+	 */
+	public float[] render(int frames) throws IllegalStateException
+	{
+		float[] out = new float[frames * 2];
+		render(out, 0, frames);
+		return out;
+	}
+	
+	/**
+	 * Renders the given number of frames offline into a 
+	 * {@code ByteBuffer}, as 16-bit little-endian PCM, from the
+	 * buffer's current position. In all other respects, this 
+	 * method is the same as {@code render(float[], int, int)}.
+	 * 
+	 * @param out a {@code ByteBuffer} with room for four bytes
+	 * per frame
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to render
+	 * @throws IllegalStateException if the {@code AudioCue} is
+	 * open
+	 */
+	public void render(ByteBuffer out, int frames) 
+			throws IllegalStateException
+	{
+		checkOffline();
+		offline().toBytes(out, frames);
+	}
+	
+	/**
+	 * Renders the given number of frames offline to a wav file,
+	 * which is created or replaced. In all other respects, this 
+	 * method is the same as {@code render(float[], int, int)}.
+	 * 
+	 * @param wavFile the {@code File} to be written
+	 * @param frames a {@code long} specifying the number of 
+	 * frames to render
+	 * @throws IOException if the file cannot be written, in which
+	 * case the incomplete file is deleted
+	 * @throws IllegalStateException if the {@code AudioCue} is
+	 * open
+	 */
+	public void render(File wavFile, long frames) 
+			throws IOException, IllegalStateException
+	{
+		checkOffline();
+		offline().toWav(wavFile, frames);
+	}
+	
 	/**
 	 * Gets the media length in sample frames.
 	 * 
@@ -550,6 +924,29 @@ public class AudioCue implements AudioMixerTrack
 		return (long)((cueFrameLength * 1_000_000.0) 
 				/ audioFormat.getFrameRate());
 	}
+	
+	/**
+	 * Returns the number of frames rendered by the audio thread
+	 * that plays this {@code AudioCue}: the count kept by the 
+	 * {@code AudioMixer} if the cue was opened with one, 
+	 * otherwise the count kept by the cue's own player. The 
+	 * count only increases, and is the time base for the 
+	 * {@code play} and {@code start} methods that take a start 
+	 * frame. For example, to start an instance half a second 
+	 * from now: {@code start(hook, getFrameTime() + 22050)}.
+	 * 
+	 * @return the frame count as a {@code long}
+	 */
+	public long getFrameTime()
+	{
+		return clock.get();
+	}
+	
+	// the clock in use, for timing events
+	FrameClock getClock()
+	{
+		return clock;
+	}
 
 	
 	/**
@@ -568,13 +965,14 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public int obtainInstance()
 	{
-		AudioCueCursor aci = availables.pollLast();
+		AudioCueCursor aci = pollAvailable();
 		
 		if (aci == null) return -1;
 		else 
 		{
+			aci.interpolation = interpolation;
 			aci.isActive = true;
-			broadcastCreateInstanceEvent(aci);
+			broadcastCreateInstanceEvent(aci, clock.get());
 			return aci.hook;
 		}
 	}
@@ -590,9 +988,70 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public void releaseInstance(int instanceHook)
 	{
-		cursors[instanceHook].resetInstance();
-		availables.offerFirst(cursors[instanceHook]);
-		broadcastReleaseEvent(cursors[instanceHook]);
+		final AudioCueCursor acc = cursors[instanceHook];
+		if (!acc.isActive) return;
+		
+		// refused by the other control methods from now on; the 
+		// cursor is reset and returned to the pool by the command
+		acc.releasing = true;
+		acc.isActive = false;
+		acc.isPlaying = false;
+		submit(CMD_RELEASE, instanceHook, 0, 0);
+	}
+	
+	/*
+	 * Lock-free and allocation-free removal of a cursor from the 
+	 * pool of availables: claims, via CAS, the first set bit at 
+	 * or after nextAvailable, wrapping around. Cursors are thus 
+	 * handed out round-robin, as the deque this replaced did, so
+	 * a hook just released is the last to be reused, and a late
+	 * call on it is unlikely to reach a new instance. Returns 
+	 * null if the pool is empty.
+	 */
+	private AudioCueCursor pollAvailable()
+	{
+		final int start = nextAvailable;
+		final int startWord = start >> 6;
+		final int n = availables.length();
+		// the start word is visited twice: first for the bits at
+		// and above start, last for the bits below it
+		for (int i = 0; i <= n; i++)
+		{
+			final int word = (startWord + i) % n;
+			final long mask = i == 0 ? -1L << start 
+					: i == n ? ~(-1L << start) : -1L;
+			long all;
+			long bits;
+			while ((bits = (all = availables.get(word)) & mask) != 0)
+			{
+				final long lowest = bits & -bits;
+				if (availables.compareAndSet(word, all, all & ~lowest))
+				{
+					final int index = (word << 6) 
+							+ Long.numberOfTrailingZeros(lowest);
+					nextAvailable = index + 1 < polyphony ? index + 1 : 0;
+					return cursors[index];
+				}
+			}
+		}
+		return null;
+	}
+	
+	/*
+	 * Lock-free setting or clearing of a single bit of a bitset.
+	 */
+	private static void setBit(AtomicLongArray bitset, int index, 
+			boolean value)
+	{
+		final int word = index >> 6;
+		final long bit = 1L << index;
+		long bits;
+		do
+		{
+			bits = bitset.get(word);
+		}
+		while (!bitset.compareAndSet(word, bits, 
+				value ? bits | bit : bits & ~bit));
 	}
 	
 	/**
@@ -672,6 +1131,32 @@ public class AudioCue implements AudioMixerTrack
 	 * or -1 if no instance is available
 	 */
 	public int play(double volume, double pan, double speed, int loop)
+	{
+		return play(volume, pan, speed, loop, -1);
+	}
+	
+	/**
+	 * Plays an available {@code AudioCue} instance, as with
+	 * {@code play(double, double, double, int)}, but with the 
+	 * sound commencing on the given frame of the clock reported
+	 * by {@code getFrameTime}, accurate to the sample frame. A 
+	 * start frame that has already been rendered by the time 
+	 * the request reaches the audio thread starts the instance 
+	 * as soon as possible.
+	 * 
+	 * @param volume a {@code double} within the range [0, 1]
+	 * @param pan a {@code double} within the range [-1, 1]
+	 * @param speed a {@code double} that becomes the frame rate 
+	 * @param loop an {@code int} that specifies a number of 
+	 * additional plays (looping)
+	 * @param startFrame a {@code long} specifying the frame of 
+	 * the clock on which play commences
+	 * @return an {@code int} hook to the playing instance, 
+	 * or -1 if no instance is available
+	 * @see #getFrameTime()
+	 */
+	public int play(double volume, double pan, double speed, int loop,
+			long startFrame)
 	{
 		int idx = obtainInstance();
 		if (idx < 0) 
@@ -686,7 +1171,7 @@ public class AudioCue implements AudioMixerTrack
 		setLooping(idx, loop);
 		setRecycleWhenDone(idx, true);
 		
-		start(idx);
+		start(idx, startFrame);
 
 		return idx;
 	}
@@ -704,15 +1189,40 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public void start(int instanceHook) throws IllegalStateException
 	{
-		if (!cursors[instanceHook].isActive || 
-			cursors[instanceHook].isPlaying)
+		start(instanceHook, -1);
+	}
+	
+	/**
+	 * Plays the specified {@code AudioCue} instance, as with
+	 * {@code start(int)}, but with the sound commencing on the 
+	 * given frame of the clock reported by {@code getFrameTime},
+	 * accurate to the sample frame. Until then, the instance 
+	 * counts as playing, but is silent. A start frame that has 
+	 * already been rendered by the time the request reaches the
+	 * audio thread starts the instance as soon as possible.
+	 * 
+	 * @param instanceHook an {@code int} used to identify an 
+	 * {@code AudioCue} instance
+	 * @param startFrame a {@code long} specifying the frame of 
+	 * the clock on which play commences
+	 * @throws IllegalStateException if instance is not active
+	 * or if instance is playing
+	 * @see #getFrameTime()
+	 */
+	public void start(int instanceHook, long startFrame) 
+			throws IllegalStateException
+	{
+		final AudioCueCursor acc = cursors[instanceHook];
+		if (!acc.isActive || acc.isPlaying)
 		{
 			throw new IllegalStateException("Illegal state, "
 					+ name + ", instance:" + instanceHook);
 		}
 		
-		cursors[instanceHook].isPlaying = true;
-		broadcastStartEvent(cursors[instanceHook]);
+		// set before the audio thread can apply the start, so 
+		// that reaching the end of the cue clears it for good
+		acc.isPlaying = true;
+		submit(CMD_START, instanceHook, startFrame, 0);
 	};
 	
 	/**
@@ -737,8 +1247,7 @@ public class AudioCue implements AudioMixerTrack
 		}
 		
 		cursors[instanceHook].isPlaying = false;
-		broadcastStopEvent(cursors[instanceHook]);
-		cursors[instanceHook].recycleWhenDone = false;
+		submit(CMD_STOP, instanceHook, 0, 0);
 	};
 		
 	/**
@@ -767,8 +1276,8 @@ public class AudioCue implements AudioMixerTrack
 					+ name + ", instance:" + instanceHook);
 		}
 		
-		cursors[instanceHook].idx = Math.max(0, Math.min(
-				getFrameLength() - 1, (float)frame));
+		submit(CMD_POSITION, instanceHook, Math.max(0, Math.min(
+				getFrameLength() - 1, frame)), 0);
 	};
 	
 	/**
@@ -822,8 +1331,8 @@ public class AudioCue implements AudioMixerTrack
 
 		float samples = (audioFormat.getFrameRate() * milliseconds) 
 				/ 1000f;
-		cursors[instanceHook].idx = 
-				Math.max(0,	Math.min(cueFrameLength - 1, samples));
+		submit(CMD_POSITION, instanceHook, 
+				Math.max(0,	Math.min(cueFrameLength - 1, samples)), 0);
 	};
 	
 	/**
@@ -852,8 +1361,8 @@ public class AudioCue implements AudioMixerTrack
 					+ name + ", instance:" + instanceHook);
 		}
 		
-		cursors[instanceHook].idx = (float)((cueFrameLength - 1) * 
-				Math.max(0, Math.min(1, normal)));
+		submit(CMD_POSITION, instanceHook, (cueFrameLength - 1) * 
+				Math.max(0, Math.min(1, normal)), 0);
 	};
 
 	/**
@@ -882,29 +1391,51 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public void setVolume(int instanceHook, double volume)
 		throws IllegalStateException
+	{	
+		setVolumeFrames(instanceHook, volume, VOLUME_RAMP_FRAMES);
+	};
+	
+	/**
+	 * Sets the volume of the instance, using the given duration
+	 * in milliseconds for the transition from the current volume 
+	 * when the instance is playing. A duration of 0 applies the 
+	 * change at the start of the next buffer, without smoothing.
+	 * In all other respects, this method is the same as 
+	 * {@code setVolume(int, double)}.
+	 * 
+	 * @param  instanceHook  an {@code int} used to identify the 
+	 * {@code AudioCue} instance
+	 * @param  volume a {@code float} in the range [0, 1] to be 
+	 * multiplied against the audio sample values
+	 * @param rampMillis a {@code double} specifying the duration 
+	 * of the transition in milliseconds
+	 * @throws IllegalStateException if instance is not active
+	 */
+	public void setVolume(int instanceHook, double volume, 
+			double rampMillis) throws IllegalStateException
+	{	
+		setVolumeFrames(instanceHook, volume, toRampFrames(rampMillis));
+	};
+	
+	private void setVolumeFrames(int instanceHook, double volume, 
+			int rampFrames) throws IllegalStateException
 	{	
 		if (!cursors[instanceHook].isActive)
 		{
 			throw new IllegalStateException(name + " instance: "
 					+ instanceHook + " is inactive");
 		}
-
-		cursors[instanceHook].targetVolume = 
-				(float)Math.min(1, Math.max(0, volume));
-		if (cursors[instanceHook].isPlaying)
-		{
-			cursors[instanceHook].targetVolumeIncr = 
-					(cursors[instanceHook].targetVolume 
-						- cursors[instanceHook].volume) 
-							/ VOLUME_STEPS;
-			cursors[instanceHook].targetVolumeSteps = VOLUME_STEPS;
-		}
-		else
-		{
-			cursors[instanceHook].volume = 
-					cursors[instanceHook].targetVolume;
-		}
+		
+		submit(CMD_VOLUME, instanceHook, 
+				Math.min(1, Math.max(0, volume)), rampFrames);
 	};
+	
+	// converts a ramp duration to frames, never negative
+	private int toRampFrames(double rampMillis)
+	{
+		return (int)Math.round(Math.max(0, rampMillis) 
+				* audioFormat.getFrameRate() / 1000);
+	}
 
 	/**
 	 * Returns a value indicating the current volume setting
@@ -924,7 +1455,7 @@ public class AudioCue implements AudioMixerTrack
 					+ instanceHook + " is inactive");
 		}
 
-		return cursors[instanceHook].volume;
+		return cursors[instanceHook].volume.value;
 	};
 
 	/**
@@ -952,27 +1483,43 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public void setPan(int instanceHook, double pan)
 		throws IllegalStateException
+	{
+		setPanFrames(instanceHook, pan, PAN_RAMP_FRAMES);
+	};
+	
+	/**
+	 * Sets the pan of the instance, using the given duration
+	 * in milliseconds for the transition from the current pan 
+	 * setting when the instance is playing. A duration of 0 
+	 * applies the change at the start of the next buffer, 
+	 * without smoothing. In all other respects, this method is
+	 * the same as {@code setPan(int, double)}.
+	 * 
+	 * @param instanceHook an {@code int} used to identify the 
+	 * {@code AudioCue} instance
+	 * @param pan a {@code double} ranging from -1 to 1
+	 * @param rampMillis a {@code double} specifying the duration 
+	 * of the transition in milliseconds
+	 * @throws IllegalStateException if instance is not active
+	 * @see AudioCue.PanType
+	 */
+	public void setPan(int instanceHook, double pan, 
+			double rampMillis) throws IllegalStateException
+	{
+		setPanFrames(instanceHook, pan, toRampFrames(rampMillis));
+	};
+	
+	private void setPanFrames(int instanceHook, double pan, 
+			int rampFrames) throws IllegalStateException
 	{
 		if (!cursors[instanceHook].isActive)
 		{
 			throw new IllegalStateException(name + " instance: "
 					+ instanceHook + " is inactive");
 		}
-		cursors[instanceHook].targetPan =
-				(float)Math.min(1, Math.max(-1, pan));
-		if (cursors[instanceHook].isPlaying)
-		{
-			cursors[instanceHook].targetPanIncr = 
-					(cursors[instanceHook].targetPan 
-						- cursors[instanceHook].pan) 
-							/ PAN_STEPS;
-			cursors[instanceHook].targetPanSteps = PAN_STEPS;
-		}
-		else
-		{
-			cursors[instanceHook].pan = 
-					cursors[instanceHook].targetPan;
-		}
+		
+		submit(CMD_PAN, instanceHook, 
+				Math.min(1, Math.max(-1, pan)), rampFrames);
 	};
 
 	/**
@@ -993,7 +1540,7 @@ public class AudioCue implements AudioMixerTrack
 					+ instanceHook + " is inactive");
 		}
 		
-		return cursors[instanceHook].pan;
+		return cursors[instanceHook].pan.value;
 	};
 
 	/**
@@ -1027,6 +1574,34 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	public void setSpeed(int instanceHook, double speed)
 			throws IllegalStateException
+	{
+		setSpeedFrames(instanceHook, speed, SPEED_RAMP_FRAMES);
+	};
+	
+	/**
+	 * Sets the play speed of the {@code AudioCue} instance, using
+	 * the given duration in milliseconds for the transition from 
+	 * the current speed when the instance is playing. A duration 
+	 * of 0 applies the change at the start of the next buffer, 
+	 * without smoothing. In all other respects, this method is 
+	 * the same as {@code setSpeed(int, double)}.
+	 * 
+	 * @param instanceHook an {@code int} used to identify an 
+	 * {@code AudioCue} instance
+	 * @param speed a {@code double} factor ranging from 
+	 * 0.125 to 8 (1/8th to 8 times the original speed)
+	 * @param rampMillis a {@code double} specifying the duration 
+	 * of the transition in milliseconds
+	 * @throws IllegalStateException if instance is not active
+	 */
+	public void setSpeed(int instanceHook, double speed, 
+			double rampMillis) throws IllegalStateException
+	{
+		setSpeedFrames(instanceHook, speed, toRampFrames(rampMillis));
+	};
+	
+	private void setSpeedFrames(int instanceHook, double speed, 
+			int rampFrames) throws IllegalStateException
 	{
 		if (!cursors[instanceHook].isActive)
 		{
@@ -1034,20 +1609,8 @@ public class AudioCue implements AudioMixerTrack
 					+ instanceHook + " is inactive");
 		}
 
-		cursors[instanceHook].targetSpeed = 
-				(float)Math.min(8, Math.max(0.125, speed));
-		if (cursors[instanceHook].isPlaying)
-		{
-			cursors[instanceHook].targetSpeedIncr = 
-				(cursors[instanceHook].targetSpeed 
-						- cursors[instanceHook].speed) / SPEED_STEPS;
-			cursors[instanceHook].targetSpeedSteps = SPEED_STEPS;
-		}
-		else
-		{
-			cursors[instanceHook].speed = 
-					cursors[instanceHook].targetSpeed;
-		}
+		submit(CMD_SPEED, instanceHook, 
+				Math.min(8, Math.max(0.125, speed)), rampFrames);
 	};
 	
 	/**
@@ -1070,9 +1633,53 @@ public class AudioCue implements AudioMixerTrack
 					+ instanceHook + " is inactive");
 		}
 
-		return cursors[instanceHook].speed;
+		return cursors[instanceHook].speed.value;
 	};
 
+	/**
+	 * Sets the method of interpolation used by the instance. The
+	 * change takes effect with the next buffer.
+	 * 
+	 * @param instanceHook an {@code int} used to identify an 
+	 * {@code AudioCue} instance
+	 * @param interpolation a member of the {@code enum 
+	 * Interpolation}
+	 * @throws IllegalStateException if instance is not active
+	 * @see Interpolation
+	 */
+	public void setInterpolation(int instanceHook, 
+			Interpolation interpolation) throws IllegalStateException
+	{
+		if (!cursors[instanceHook].isActive)
+		{
+			throw new IllegalStateException(name + " instance: "
+					+ instanceHook + " is inactive");
+		}
+		
+		submit(CMD_INTERPOLATION, instanceHook, 
+				interpolation.ordinal(), 0);
+	}
+	
+	/**
+	 * Returns the method of interpolation used by the instance.
+	 * 
+	 * @param instanceHook an {@code int} used to identify an 
+	 * {@code AudioCue} instance
+	 * @return the {@code Interpolation} of the instance
+	 * @throws IllegalStateException if instance is not active
+	 */
+	public Interpolation getInterpolation(int instanceHook) 
+			throws IllegalStateException
+	{
+		if (!cursors[instanceHook].isActive)
+		{
+			throw new IllegalStateException(name + " instance: "
+					+ instanceHook + " is inactive");
+		}
+		
+		return cursors[instanceHook].interpolation;
+	}
+	
 	/**
 	 * Sets the number of times the media will restart
 	 * from the beginning, after completing, or specifies 
@@ -1095,7 +1702,7 @@ public class AudioCue implements AudioMixerTrack
 					+ instanceHook + " is inactive");
 		}
 		
-		cursors[instanceHook].loop = loops;
+		submit(CMD_LOOP, instanceHook, loops, 0);
 	};
 	
 	/**
@@ -1125,7 +1732,7 @@ public class AudioCue implements AudioMixerTrack
 					+ instanceHook + " is inactive");
 		}
 		
-		cursors[instanceHook].recycleWhenDone = recycleWhenDone;
+		submit(CMD_RECYCLE, instanceHook, recycleWhenDone ? 1 : 0, 0);
 	}	
 	
 	/**
@@ -1157,6 +1764,122 @@ public class AudioCue implements AudioMixerTrack
 	}
 	
 	
+	/*
+	 * True while an audio thread renders the cue: its own player,
+	 * or the AudioMixer it is open on, once that is started. 
+	 */
+	private boolean isRendering()
+	{
+		final AudioMixer mixer = audioMixer;
+		return playerRunning && (mixer == null || mixer.isRendering());
+	}
+	
+	/*
+	 * Passes an instance control call to the audio thread, which
+	 * applies it at the start of the next buffer. If no audio 
+	 * thread is rendering the cue, because the cue is not open or
+	 * its AudioMixer is not started, the call is applied at once,
+	 * after any commands left queued by an audio thread that has
+	 * since stopped. Buffers pulled by hand, via readTrack or the
+	 * offline render, are then to be pulled on the controlling 
+	 * thread. The lock serializes controlling threads only; the 
+	 * audio thread never takes it. Instead, open, close and the
+	 * start of an AudioMixer take it as rendering begins or ends,
+	 * and the state is checked again under it, so that a call is
+	 * never applied directly while an audio thread drains the 
+	 * queue. A full queue is emptied by the audio thread at its 
+	 * next buffer, so the call waits for room.
+	 */
+	private void submit(int op, int hook, double value, int frames)
+	{
+		while (true)
+		{
+			if (!isRendering())
+			{
+				synchronized (commands)
+				{
+					if (!isRendering())
+					{
+						commandFrame = clock.get();
+						commands.drain(commandHandler);
+						applyCommand(op, hook, value, frames);
+						return;
+					}
+				}
+			}
+			if (commands.offer(op, hook, value, frames)) return;
+			Thread.yield();
+		}
+	}
+	
+	/*
+	 * Returns once no control call is being applied directly. 
+	 * Called by an AudioMixer that is starting, once it counts 
+	 * as rendering, so that calls from then on are queued for 
+	 * its audio thread.
+	 */
+	void awaitDirectCommands()
+	{
+		synchronized (commands)
+		{
+			// holding the lock is enough
+		}
+	}
+	
+	/*
+	 * AudioThread code, unless no audio thread is rendering.
+	 * Commands for an instance that has been released or 
+	 * recycled in the meantime are ignored, as is a release of 
+	 * an instance recycled before the release was applied.
+	 */
+	private void applyCommand(int op, int hook, double value, 
+			int frames)
+	{
+		final AudioCueCursor acc = cursors[hook];
+		if (op == CMD_RELEASE ? !acc.releasing : !acc.isActive) return;
+		
+		switch (op)
+		{
+		case CMD_START:
+			acc.startFrame = (long)value;
+			acc.setPlaying(true);
+			broadcastStartEvent(acc, 
+					Math.max(acc.startFrame, commandFrame));
+			break;
+		case CMD_STOP:
+			acc.setPlaying(false);
+			acc.recycleWhenDone = false;
+			broadcastStopEvent(acc, commandFrame);
+			break;
+		case CMD_RELEASE:
+			acc.resetInstance();
+			setBit(availables, hook, true);
+			broadcastReleaseEvent(acc, commandFrame);
+			break;
+		case CMD_POSITION:
+			acc.idx = value;
+			break;
+		case CMD_VOLUME:
+			acc.setRamp(acc.volume, (float)value, frames);
+			break;
+		case CMD_PAN:
+			acc.setRamp(acc.pan, (float)value, frames);
+			break;
+		case CMD_SPEED:
+			acc.setRamp(acc.speed, (float)value, frames);
+			break;
+		case CMD_INTERPOLATION:
+			acc.interpolation = INTERPOLATIONS[(int)value];
+			break;
+		case CMD_LOOP:
+			acc.loop = (int)value;
+			break;
+		case CMD_RECYCLE:
+			acc.recycleWhenDone = value != 0;
+			break;
+		}
+	}
+	
 	/*
 	 * A private, data-only class that is created and
 	 * maintained internally for managing each concurrent instance 
@@ -1175,35 +1898,35 @@ public class AudioCue implements AudioMixerTrack
 	 * back in the pool of available instances when a play 
 	 * completes, or if it remains available to update. 
 	 * <p>
-	 * The <em>target</em> variables are used to ensure that 
-	 * changes in real time to the corresponding settings change
-	 * in small enough increments that discontinuities are not 
-	 * created in the data.
+	 * The volume, pan and speed settings are held as 
+	 * {@code Ramp}s, which ensure that changes in real time 
+	 * are spread out over enough frames that discontinuities 
+	 * are not created in the data.
+	 * <p>
+	 * While the cue is open, all fields other than the two flags
+	 * are written only by the audio thread, as it applies the 
+	 * commands queued by the control methods. The flags are 
+	 * also updated at once by the control methods, so that 
+	 * their state checks see the effect of earlier calls that 
+	 * the audio thread has yet to apply.
 	 */
 	private class AudioCueCursor
 	{
 		volatile boolean isPlaying;
 		volatile boolean isActive;
+		// set by releaseInstance until the release is applied
+		volatile boolean releasing;
 		final int hook;
 		
-		float idx;
-		float speed;
-		float volume;
-		float pan;
+		double idx;
+		// clock frame on which play commences
+		long startFrame;
+		final Ramp speed = new Ramp();
+		final Ramp volume = new Ramp();
+		final Ramp pan = new Ramp();
+		Interpolation interpolation = Interpolation.LINEAR;
 		int loop;
 		boolean recycleWhenDone;
-
-		float targetSpeed;
-		float targetSpeedIncr;
-		int targetSpeedSteps;
-		
-		float targetVolume;
-		float targetVolumeIncr;
-		int targetVolumeSteps;
-		
-		float targetPan;
-		float targetPanIncr;
-		int targetPanSteps;
 		
 		AudioCueCursor(int hook)
 		{
@@ -1217,17 +1940,110 @@ public class AudioCue implements AudioMixerTrack
 		void resetInstance()
 		{
 			isActive = false;
-			isPlaying = false;
+			releasing = false;
+			setPlaying(false);
 			idx = 0;
-			speed = 1;
-			volume = 0;
-			pan = 0;
+			speed.jumpTo(1);
+			volume.jumpTo(0);
+			pan.jumpTo(0);
 			loop = 0;
 			recycleWhenDone = false;
+		}
+		
+		/*
+		 * Keeps the playingCursors bitset in step with the flag.
+		 */
+		void setPlaying(boolean playing)
+		{
+			isPlaying = playing;
+			setBit(playingCursors, hook, playing);
+		}
+		
+		/*
+		 * A playing instance glides to the new value, a stopped
+		 * one takes it at once.
+		 */
+		void setRamp(Ramp ramp, float target, int rampFrames)
+		{
+			if ((playingCursors.get(hook >> 6) & 1L << hook) != 0)
+			{
+				ramp.rampTo(target, rampFrames);
+			}
+			else
+			{
+				ramp.jumpTo(target);
+			}
+		}
+	}
+	
+	/*
+	 * A parameter that moves linearly toward its target over a 
+	 * given number of frames. The render loop asks for the 
+	 * number of frames over which the parameter either holds 
+	 * still or changes at a constant rate, renders that 
+	 * segment with a fixed per-frame increment, then advances 
+	 * the ramp by the frames rendered. Once the target is 
+	 * reached, the ramp holds at the target value and does no 
+	 * further counting.
+	 */
+	private static class Ramp
+	{
+		float value;
+		float target;
+		float increment;
+		int remaining;
+		
+		void jumpTo(float target)
+		{
+			this.value = target;
+			this.target = target;
+			increment = 0;
+			remaining = 0;
+		}
+		
+		void rampTo(float target, int frames)
+		{
+			if (frames <= 0)
+			{
+				jumpTo(target);
+				return;
+			}
 			
-			targetSpeedSteps = 0;
-			targetVolumeSteps = 0;
-			targetPanSteps = 0;
+			this.target = target;
+			increment = (target - value) / frames;
+			remaining = frames;
+		}
+		
+		/*
+		 * Number of frames, up to limit, over which the per-frame
+		 * increment holds constant (zero when not ramping).
+		 */
+		int segment(int limit)
+		{
+			return remaining > 0 ? Math.min(remaining, limit) : limit;
+		}
+		
+		// per-frame increment for the current segment
+		float slope()
+		{
+			return remaining > 0 ? increment : 0;
+		}
+		
+		// value after the given number of frames of this segment
+		float valueAfter(int frames)
+		{
+			if (remaining <= 0) return value;
+			return frames >= remaining ? target 
+					: value + increment * frames;
+		}
+		
+		void advance(int frames)
+		{
+			value = valueAfter(frames);
+			if (remaining > 0)
+			{
+				remaining = Math.max(0, remaining - frames);
+			}
 		}
 	}
 
@@ -1238,34 +2054,52 @@ public class AudioCue implements AudioMixerTrack
 	 */
 	private class AudioCuePlayer implements Runnable
 	{
-		private SourceDataLine sdl;
+		private OutputSink sink;
 		private final int sdlBufferSize;
 		private byte[] audioBytes;
+		// true while audioBytes holds nothing but silence
+		private boolean bytesSilent;
 		
-		AudioCuePlayer(Mixer mixer, int bufferFrames) throws 
+		AudioCuePlayer(OutputSink sink, int bufferFrames) throws 
 			LineUnavailableException
 		{
 			readBuffer = new float[bufferFrames * 2];
 			sdlBufferSize = bufferFrames * 4;
 			audioBytes = new byte[sdlBufferSize];
 					
-			sdl = getSourceDataLine(mixer, info);
-			sdl.open(audioFormat, sdlBufferSize);
-			sdl.start();
+			this.sink = sink;
+			sink.open(audioFormat, sdlBufferSize);
 		}
 		
 		// Audio Thread Code
 		public void run()
 		{			
+			playerClock.setSink(sink);
 			while(playerRunning)
 			{
-				readBuffer = fillBuffer(readBuffer);
-				audioBytes = fromBufferToAudioBytes(audioBytes, readBuffer);
-				sdl.write(audioBytes, 0, sdlBufferSize);
+				if (isSilent())
+				{
+					// nothing to render, resend the zeros
+					if (!bytesSilent)
+					{
+						Arrays.fill(audioBytes, (byte)0);
+						bytesSilent = true;
+					}
+				}
+				else
+				{
+					readBuffer = fillBuffer(readBuffer);
+					audioBytes = fromBufferToAudioBytes(audioBytes, 
+							readBuffer);
+					bytesSilent = false;
+				}
+				playerClock.advance(readBuffer.length / 2);
+				sink.write(audioBytes, 0, sdlBufferSize);
 			}
-			sdl.drain();
-			sdl.close();
-			sdl = null;
+			playerClock.setSink(null);
+			sink.drain();
+			sink.close();
+			sink = null;
 		}
 	}
 
@@ -1277,123 +2111,266 @@ public class AudioCue implements AudioMixerTrack
 	{
 		// Start with 0-filled buffer, send out silence
 		// if nothing playing.
-		int bufferLength = readBuffer.length;
-		for (int i = 0; i < bufferLength; i++) 
+		Arrays.fill(readBuffer, 0);
+		renderOpen(readBuffer, 0, readBuffer.length / 2);
+		
+		return readBuffer;
+	}
+	
+	/*
+	 * AudioThread code.
+	 * Renders as renderInto does, unless the cue has been closed.
+	 * The flag is raised before the test, so that close, which 
+	 * clears playerRunning and then waits on the flag, either is
+	 * seen here or sees the buffer out.
+	 */
+	private void renderOpen(float[] out, int offset, int frames)
+	{
+		inBlock = true;
+		if (playerRunning) renderInto(out, offset, frames);
+		inBlock = false;
+	}
+	
+	/*
+	 * AudioThread code.
+	 * Adds frames stereo frames of all playing cursors into 
+	 * out, starting at the frame offset.
+	 */
+	private void renderInto(float[] out, int offset, int frames)
+	{
+		blockFrame = clock.get();
+		final long firstFrame = blockFrame + offset;
+		commandFrame = firstFrame;
+		commands.drain(commandHandler);
+		
+		// visit only the cursors flagged in the playing bitset
+		for (int word = 0, n = playingCursors.length(); word < n; word++)
 		{
-			readBuffer[i] = 0;
+			long bits = playingCursors.get(word);
+			while (bits != 0)
+			{
+				final int ci = (word << 6) 
+						+ Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				
+				// a scheduled start begins at its exact frame
+				final long delay = cursors[ci].startFrame - firstFrame;
+				if (delay <= 0)
+				{
+					renderCursor(cursors[ci], out, offset, frames);
+				}
+				else if (delay < frames)
+				{
+					// once commenced, play on from here
+					cursors[ci].startFrame = -1;
+					renderCursor(cursors[ci], out, offset + (int)delay, 
+							frames - (int)delay);
+				}
+			}
 		}
+	}
+	
+	/*
+	 * AudioThread code.
+	 * The buffer is divided into segments over which volume, 
+	 * pan and speed are each either constant or changing at a 
+	 * constant rate, so that the inner loops are free of 
+	 * per-frame tests. Segments are also limited to the number 
+	 * of frames that can be read without the interpolation 
+	 * reaching past either end of the cue. Each segment is 
+	 * interpolated into the segmentBuffer, then added to the 
+	 * output with the volume and pan gains applied. A cursor 
+	 * playing at exactly unity speed from a whole frame position
+	 * needs no interpolation, and its segments are added to the 
+	 * output directly from the cue. Data not held as floats is 
+	 * first read into the readWindow, one segment at a time.
+	 */
+	private void renderCursor(AudioCueCursor acc, float[] out, 
+			int offset, int frames)
+	{
+		final long lastFrame = cueFrameLength - 1;
+		final PanLaw law = panLaw;
+		final Interpolation interp = acc.interpolation;
+		int pos = 0;
 		
-		for (int ci = 0; ci < polyphony; ci++)
+		while (pos < frames)
 		{
-			if (cursors[ci].isPlaying) 
+			// test for "eof" and "looping"
+			if (acc.idx >= lastFrame)
+			{
+				// a cue too short to read through can only 
+				// stop or loop, the latter once per buffer
+				if (!endOfCue(acc, blockFrame + offset + pos) 
+						|| acc.idx >= lastFrame) return;
+			}
+			
+			int segment = acc.volume.segment(frames - pos);
+			segment = acc.pan.segment(segment);
+			segment = acc.speed.segment(segment);
+			if (acc.pan.slope() != 0)
 			{
-				AudioCueCursor acc = cursors[ci];
-				/*
-				 * Usually, pan won't change, so let's 
-				 * store value and only recalculate when 
-				 * it changes.
-				 */
-				float panFactorL = panL.apply(acc.pan);
-				float panFactorR = panR.apply(acc.pan);
+				segment = Math.min(segment, PAN_STEP_FRAMES);
+			}
+			
+			final float speed = acc.speed.value;
+			final float speedIncr = acc.speed.slope();
+			
+			final float[] src;
+			final int srcPos;
+			final int n;
+			if (speed == 1 && speedIncr == 0 
+					&& acc.idx == (long)acc.idx)
+			{
+				// unity speed, whole frames: a straight copy
+				final long intIndex = (long)acc.idx;
+				if (cue != null)
+				{
+					n = (int)Math.min(segment, lastFrame - intIndex);
+					src = cue;
+					srcPos = (int)intIndex * 2;
+				}
+				else
+				{
+					n = (int)Math.min(Math.min(segment, SEGMENT_FRAMES), 
+							lastFrame - intIndex);
+					data.read(intIndex, n, segmentBuffer);
+					src = segmentBuffer;
+					srcPos = 0;
+				}
+				acc.idx = intIndex + n;
+			}
+			else
+			{
+				segment = Math.min(segment, SEGMENT_FRAMES);
+				final float topSpeed = Math.max(speed, 
+						acc.speed.valueAfter(segment));
+				final int before = interp.before(topSpeed);
+				final int after = interp.after(topSpeed);
 				
-				for (int i = 0; i < bufferLength; i += 2)
+				// frames guaranteed to read within the cue
+				final int safe = (int)((lastFrame - (after - 1) 
+						- acc.idx) / topSpeed) - 1;
+				if (acc.idx >= before && safe > 0)
 				{
-					// adjust volume if needed
-					if (acc.targetVolumeSteps-- > 0)
-					{
-						acc.volume += acc.targetVolumeIncr;
-					}
-					
-					// adjust pan if needed
-					if (acc.targetPanSteps-- > 0)
-					{
-						acc.pan += acc.targetPanIncr;
-						panFactorL = panL.apply(acc.pan);
-						panFactorR = panR.apply(acc.pan);
-					}
-					
-					// get audioVals (with LERP for fractional idx)
-					float[] audioVals = new float[2];
-					audioVals = readFractionalFrame(audioVals, acc.idx);
-					
-					readBuffer[i] += (audioVals[0] 
-							* acc.volume * panFactorL);
-					readBuffer[i + 1] += (audioVals[1] 
-							* acc.volume * panFactorR);
-					
-					// SET UP FOR NEXT ITERATION
-					// adjust pitch if needed
-					if (acc.targetSpeedSteps-- > 0)
+					n = Math.min(segment, safe);
+					if (cue != null)
 					{
-						acc.speed += 
-								acc.targetSpeedIncr;
+						acc.idx = interp.interpolate(cue, acc.idx, 
+								speed, speedIncr, segmentBuffer, n);
 					}
-	
-					// set NEXT read position
-					acc.idx += acc.speed;
-					
-					// test for "eof" and "looping"
-					if (acc.idx >= (cueFrameLength - 1))
+					else
 					{
-						// keep looping indefinitely
-						if (acc.loop == -1)
-						{
-							acc.idx = 0;
-							broadcastLoopEvent(acc);
-						}
-						// loop specific number of times
-						else if (acc.loop > 0)
-						{
-							acc.loop--;
-							acc.idx = 0;
-							broadcastLoopEvent(acc);
-						}
-						else // no more loops to do
-						{
-							acc.isPlaying = false;
-							broadcastStopEvent(acc);
-							if (acc.recycleWhenDone)
-							{
-								acc.resetInstance();
-								availables.offerFirst(acc);
-								broadcastReleaseEvent(acc);
-							}
-							break;
-						}
+						// every frame the segment can read
+						final long first = (long)acc.idx - before;
+						final int count = (int)Math.min(cueFrameLength - first,
+								before + after + 3 + (int)(n * topSpeed));
+						data.read(first, count, readWindow);
+						acc.idx = first + interp.interpolate(readWindow, 
+								acc.idx - first, speed, speedIncr, 
+								segmentBuffer, n);
 					}
 				}
+				else
+				{
+					// near either end, read one frame at a time
+					// from a zero-padded copy of the neighborhood
+					n = 1;
+					final long first = (long)acc.idx - before;
+					fillEdgeWindow(first, before + after + 1);
+					acc.idx = first + interp.interpolate(edgeWindow, 
+							acc.idx - first, speed, 0, segmentBuffer, 1);
+				}
+				src = segmentBuffer;
+				srcPos = 0;
 			}
+			
+			// pan law is consulted at the segment ends only, which 
+			// are at most PAN_STEP_FRAMES apart while the pan ramps
+			final float panL = law.left(acc.pan.value);
+			final float panR = law.right(acc.pan.value);
+			final float nextPan = acc.pan.valueAfter(n);
+			
+			AudioKernels.addStereo(src, srcPos, out, (offset + pos) * 2, n, 
+					acc.volume.value, acc.volume.slope(),
+					panL, (law.left(nextPan) - panL) / n,
+					panR, (law.right(nextPan) - panR) / n);
+			
+			acc.volume.advance(n);
+			acc.pan.advance(n);
+			acc.speed.advance(n);
+			pos += n;
 		}
-		return readBuffer;
+		
+		if (acc.idx >= lastFrame) endOfCue(acc, blockFrame + offset + pos);
 	}
 	
-	// Audio thread code, gets single stereo Frame pairs.
-	// Due to variable pitch, requires LERP between frames.
-	private float[] readFractionalFrame(float[] audioVals, float idx)
+	/*
+	 * AudioThread code.
+	 * Copies frameCount frames starting at firstFrame into the 
+	 * edgeWindow, with zeros for frames outside of the cue.
+	 */
+	private void fillEdgeWindow(long firstFrame, int frameCount)
 	{
-		final int intIndex = (int) idx;
-		final int flatIndex = intIndex * 2;
-		
-		audioVals[0] = cue[flatIndex + 2] * (idx - intIndex) 
-				+ cue[flatIndex] * ((intIndex + 1) - idx);
-		
-		audioVals[1] = cue[flatIndex + 3] * (idx - intIndex) 
-				+ cue[flatIndex + 1] * ((intIndex + 1) - idx);
-
-		return audioVals;
+		final long start = Math.max(firstFrame, 0);
+		final long end = Math.min(firstFrame + frameCount, cueFrameLength);
+		Arrays.fill(edgeWindow, 0, frameCount * 2, 0);
+		if (start >= end) return;
+		if (cue != null)
+		{
+			System.arraycopy(cue, (int)start * 2, edgeWindow, 
+					(int)(start - firstFrame) * 2, (int)(end - start) * 2);
+		}
+		else
+		{
+			data.read(start, (int)(end - start), readWindow);
+			System.arraycopy(readWindow, 0, edgeWindow, 
+					(int)(start - firstFrame) * 2, (int)(end - start) * 2);
+		}
 	}
 	
-	// Audio Thread Code, keep this a self-contained function!
-	public static byte[] fromBufferToAudioBytes(byte[] audioBytes, float[] buffer)
+	/*
+	 * AudioThread code.
+	 * Handles looping or stopping when the cursor reaches the
+	 * end of the cue, on the given frame of the clock. Returns 
+	 * true if the cursor continues to play.
+	 */
+	private boolean endOfCue(AudioCueCursor acc, long frame)
 	{
-		for (int i = 0, n = buffer.length; i < n; i++)
+		// keep looping indefinitely
+		if (acc.loop == -1)
 		{
-			buffer[i] *= 32767;
-			
-			audioBytes[i*2] = (byte) buffer[i];
-			audioBytes[i*2 + 1] = (byte)((int)buffer[i] >> 8 );
+			acc.idx = 0;
+			broadcastLoopEvent(acc, frame);
+			return true;
+		}
+		// loop specific number of times
+		else if (acc.loop > 0)
+		{
+			acc.loop--;
+			acc.idx = 0;
+			broadcastLoopEvent(acc, frame);
+			return true;
+		}
+		else // no more loops to do
+		{
+			acc.setPlaying(false);
+			broadcastStopEvent(acc, frame);
+			if (acc.recycleWhenDone)
+			{
+				acc.resetInstance();
+				setBit(availables, acc.hook, true);
+				broadcastReleaseEvent(acc, frame);
+			}
+			return false;
 		}
+	}
 	
+	// Audio Thread Code, keep this a self-contained function!
+	// Values are clamped to [-1, 1] and the buffer is left 
+	// unchanged.
+	public static byte[] fromBufferToAudioBytes(byte[] audioBytes, float[] buffer)
+	{
+		AudioKernels.toPcm16LE(buffer, audioBytes, buffer.length);
 		return audioBytes;
 	}
 
@@ -1433,6 +2410,47 @@ public class AudioCue implements AudioMixerTrack
 		return fillBuffer(readBuffer);
 	}
 	
+	/**
+	 * Renders the playing instances by adding them directly 
+	 * into the given buffer, rather than into a buffer of this 
+	 * {@code AudioCue} that the caller must then add. The 
+	 * buffer holds interleaved stereo frames, and frames are 
+	 * counted from the frame offset.
+	 * 
+	 * @param mix a {@code float} array of stereo frames to be
+	 * added to
+	 * @param offset an {@code int} specifying the first frame 
+	 * of mix to be written
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to be rendered
+	 */
+	@Override  // AudioMixerTrack interface
+	public void mixTrack(float[] mix, int offset, int frames)
+	{
+		renderOpen(mix, offset, frames);
+	}
+	
+	/**
+	 * Returns {@code true} if no instance of this {@code AudioCue}
+	 * is playing, in which case the next buffer would consist 
+	 * only of zeros. An instance that starts after this method
+	 * is called begins sounding with the following buffer.
+	 * 
+	 * @return {@code true} if no instances are playing
+	 */
+	@Override  // AudioMixerTrack interface
+	public boolean isSilent()
+	{
+		// pending commands may start an instance
+		if (!commands.isEmpty()) return false;
+		
+		for (int word = 0, n = playingCursors.length(); word < n; word++)
+		{
+			if (playingCursors.get(word) != 0) return false;
+		}
+		return true;
+	}
+	
 	
 	
 	// The following are the methods that broadcast events to 
@@ -1456,62 +2474,40 @@ public class AudioCue implements AudioMixerTrack
 	}
 	
 	
-	private void broadcastCreateInstanceEvent(AudioCueCursor acc)
+	// The instance events are queued, to be delivered on the
+	// dispatching thread, and may be raised on the audio thread.
+	private void broadcastCreateInstanceEvent(AudioCueCursor acc, 
+			long renderFrame)
 	{
-		for (AudioCueListener acl:listeners)
-		{
-			acl.instanceEventOccurred(
-					new AudioCueInstanceEvent(
-							Type.OBTAIN_INSTANCE,
-							this, acc.hook, 0
-					));
-		}
+		if (!events.wants(Type.OBTAIN_INSTANCE)) return;
+		events.offer(Type.OBTAIN_INSTANCE, acc.hook, 0, renderFrame);
 	}
 	
-	private void broadcastReleaseEvent(AudioCueCursor acc)
+	private void broadcastReleaseEvent(AudioCueCursor acc, 
+			long renderFrame)
 	{
-		for (AudioCueListener acl:listeners)
-		{
-			acl.instanceEventOccurred(
-					new AudioCueInstanceEvent(
-							Type.RELEASE_INSTANCE,
-							this, acc.hook, acc.idx
-					));
-		}
+		if (!events.wants(Type.RELEASE_INSTANCE)) return;
+		events.offer(Type.RELEASE_INSTANCE, acc.hook, acc.idx, renderFrame);
 	}
 
-	private void broadcastStartEvent(AudioCueCursor acc)
+	private void broadcastStartEvent(AudioCueCursor acc, 
+			long renderFrame)
 	{
-		for (AudioCueListener acl:listeners)
-		{
-			acl.instanceEventOccurred(
-					new AudioCueInstanceEvent(
-							Type.START_INSTANCE,
-							this, acc.hook, acc.idx
-					));
-		}
+		if (!events.wants(Type.START_INSTANCE)) return;
+		events.offer(Type.START_INSTANCE, acc.hook, acc.idx, renderFrame);
 	}
 	
-	private void broadcastLoopEvent(AudioCueCursor acc)
+	private void broadcastLoopEvent(AudioCueCursor acc, 
+			long renderFrame)
 	{
-		for (AudioCueListener acl:listeners)
-		{
-			acl.instanceEventOccurred(
-					new AudioCueInstanceEvent(
-							Type.LOOP, this, acc.hook, 0
-					));
-		}
+		if (!events.wants(Type.LOOP)) return;
+		events.offer(Type.LOOP, acc.hook, 0, renderFrame);
 	}
 	
-	private void broadcastStopEvent(AudioCueCursor acc)
+	private void broadcastStopEvent(AudioCueCursor acc, 
+			long renderFrame)
 	{
-		for (AudioCueListener acl:listeners)
-		{
-			acl.instanceEventOccurred(
-					new AudioCueInstanceEvent(
-							Type.STOP_INSTANCE,
-							this, acc.hook, acc.idx
-					));
-		}
+		if (!events.wants(Type.STOP_INSTANCE)) return;
+		events.offer(Type.STOP_INSTANCE, acc.hook, acc.idx, renderFrame);
 	}
 }
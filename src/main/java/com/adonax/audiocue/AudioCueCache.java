@@ -0,0 +1,334 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * {@code AudioCueCache} shares the audio data of the files it 
+ * loads among the {@code AudioCue}s made from them. The first 
+ * {@code AudioCue} made from a given {@code URL} loads the file,
+ * and later ones, which may differ in polyphony, listeners and 
+ * every other setting, play from the same array rather than 
+ * each holding a copy. The data is always held as 
+ * {@code SampleStorage.FLOAT}, as with 
+ * {@code AudioCue.makeStereoCue(URL, int)}. Simultaneous requests for a file that is
+ * still loading wait for that one load.
+ * <p>
+ * The data of each file is counted as referenced by each 
+ * {@code AudioCue} made from it, until that cue is handed back 
+ * with {@code release}. Data that is no longer referenced stays
+ * cached, so that a cue made again later is made without loading
+ * the file, until the bytes cached exceed the budget. The data 
+ * least recently used among the unreferenced entries is then 
+ * evicted, until the cache is back within its budget. Referenced
+ * data is never evicted, so the budget may be exceeded while the
+ * cues in use need more.
+ * <p>
+ * Counts of hits, misses and evictions are kept for tuning the 
+ * budget. Entries are keyed by the external form of the 
+ * {@code URL}, so the same file reached by two different 
+ * {@code URL}s is loaded twice.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public class AudioCueCache 
+{
+	private static final class Entry
+	{
+		final String key;
+		final CompletableFuture<float[]> data = 
+				new CompletableFuture<float[]>();
+		int references;
+		long bytes;
+		
+		Entry(String key)
+		{
+			this.key = key;
+		}
+	}
+	
+	// in access order, least recently used first
+	private final LinkedHashMap<String, Entry> entries = 
+			new LinkedHashMap<String, Entry>(16, 0.75f, true);
+	private final Map<AudioCue, Entry> cues = 
+			new IdentityHashMap<AudioCue, Entry>();
+	
+	private long budgetBytes;
+	private long cachedBytes;
+	private long hits;
+	private long misses;
+	private long evictions;
+	
+	/**
+	 * Constructor for {@code AudioCueCache}, with the number of
+	 * bytes of audio data to keep cached. Each stereo frame takes
+	 * eight bytes, so 10 seconds at 44100 frames per second take
+	 * 3528000 bytes.
+	 * 
+	 * @param budgetBytes a {@code long} specifying the number of 
+	 * bytes beyond which unreferenced data is evicted
+	 */
+	public AudioCueCache(long budgetBytes)
+	{
+		this.budgetBytes = budgetBytes;
+	}
+	
+	/**
+	 * Creates and returns a new {@code AudioCue}, as with
+	 * {@code AudioCue.makeStereoCue(URL, int)}, but playing from
+	 * the data cached for the {@code URL}, which is loaded only 
+	 * if it is not cached. The data is counted as referenced by 
+	 * the {@code AudioCue} until it is passed to {@code release}.
+	 * 
+	 * @param url a {@code URL} for the source file 
+	 * @param polyphony an {@code int} specifying 
+	 * the maximum number of concurrent instances
+	 * @return AudioCue
+	 * @throws UnsupportedAudioFileException if the media
+	 * is not audio that can be read as PCM
+	 * @throws IOException if unable to load the file
+	 */
+	public AudioCue makeStereoCue(URL url, int polyphony) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		final String key = url.toExternalForm();
+		final Entry entry;
+		final boolean load;
+		synchronized (this)
+		{
+			Entry cached = entries.get(key);
+			load = cached == null;
+			if (load)
+			{
+				cached = new Entry(key);
+				entries.put(key, cached);
+				misses++;
+			}
+			else
+			{
+				hits++;
+			}
+			cached.references++;
+			entry = cached;
+		}
+		
+		final float[] data;
+		try
+		{
+			data = load ? load(url, entry) : entry.data.join();
+		}
+		catch (CompletionException e)
+		{
+			// the load this request waited for failed
+			unreference(entry);
+			Throwable cause = e.getCause();
+			if (cause instanceof UnsupportedAudioFileException) 
+				throw (UnsupportedAudioFileException)cause;
+			if (cause instanceof IOException) throw (IOException)cause;
+			if (cause instanceof Error) throw (Error)cause;
+			throw (RuntimeException)cause;
+		}
+		
+		final AudioCue cue;
+		try
+		{
+			cue = AudioCue.makeStereoCue(data, 
+					AudioCue.nameOf(url), polyphony);
+		}
+		catch (Throwable e)
+		{
+			// no cue holds the reference taken above
+			unreference(entry);
+			throw e;
+		}
+		synchronized (this)
+		{
+			cues.put(cue, entry);
+		}
+		return cue;
+	}
+	
+	private float[] load(URL url, Entry entry) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		final float[] data;
+		try
+		{
+			data = AudioLoader.load(url);
+		}
+		catch (Throwable e)
+		{
+			// on an Error too, or requests waiting on the entry
+			// would wait forever
+			synchronized (this)
+			{
+				entries.remove(entry.key);
+			}
+			entry.data.completeExceptionally(e);
+			throw e;
+		}
+		
+		synchronized (this)
+		{
+			entry.bytes = data.length * 4L;
+			cachedBytes += entry.bytes;
+			evict();
+		}
+		entry.data.complete(data);
+		return data;
+	}
+	
+	/**
+	 * Hands back an {@code AudioCue} made by this cache, which 
+	 * should no longer be played, so that its data no longer 
+	 * counts as referenced by it. Data referenced by no cue 
+	 * becomes a candidate for eviction.
+	 * 
+	 * @param cue the {@code AudioCue} to release
+	 * @throws IllegalArgumentException if the {@code AudioCue} 
+	 * was not made by this cache, or has already been released
+	 */
+	public void release(AudioCue cue) throws IllegalArgumentException
+	{
+		Entry entry;
+		synchronized (this)
+		{
+			entry = cues.remove(cue);
+		}
+		if (entry == null) throw new IllegalArgumentException(
+				"Not a cue of this cache: " + cue.getName());
+		unreference(entry);
+	}
+	
+	private synchronized void unreference(Entry entry)
+	{
+		entry.references--;
+		evict();
+	}
+	
+	/*
+	 * Evicts unreferenced, loaded entries, least recently used 
+	 * first, until the cache is within its budget.
+	 */
+	private void evict()
+	{
+		Iterator<Entry> it = entries.values().iterator();
+		while (cachedBytes > budgetBytes && it.hasNext())
+		{
+			Entry entry = it.next();
+			if (entry.references == 0 && entry.data.isDone())
+			{
+				it.remove();
+				cachedBytes -= entry.bytes;
+				evictions++;
+			}
+		}
+	}
+	
+	/**
+	 * Sets the number of bytes of audio data to keep cached,
+	 * evicting unreferenced data at once if the cache exceeds 
+	 * the new budget.
+	 * 
+	 * @param budgetBytes a {@code long} specifying the number of 
+	 * bytes beyond which unreferenced data is evicted
+	 */
+	public synchronized void setBudget(long budgetBytes)
+	{
+		this.budgetBytes = budgetBytes;
+		evict();
+	}
+	
+	/**
+	 * Returns the number of bytes of audio data to keep cached.
+	 * 
+	 * @return the budget in bytes
+	 */
+	public synchronized long getBudget() { return budgetBytes; }
+	
+	/**
+	 * Returns the number of bytes of audio data held by the 
+	 * cache, whether referenced or not.
+	 * 
+	 * @return the bytes cached
+	 */
+	public synchronized long getCachedBytes() { return cachedBytes; }
+	
+	/**
+	 * Returns the number of files cached, including any being
+	 * loaded.
+	 * 
+	 * @return the number of entries
+	 */
+	public synchronized int getEntryCount() { return entries.size(); }
+	
+	/**
+	 * Returns the number of cues made from data already cached 
+	 * or being loaded.
+	 * 
+	 * @return the number of hits
+	 */
+	public synchronized long getHitCount() { return hits; }
+	
+	/**
+	 * Returns the number of cues for which the file had to be 
+	 * loaded.
+	 * 
+	 * @return the number of misses
+	 */
+	public synchronized long getMissCount() { return misses; }
+	
+	/**
+	 * Returns the number of entries evicted to keep the cache
+	 * within its budget.
+	 * 
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictionCount() { return evictions; }
+}
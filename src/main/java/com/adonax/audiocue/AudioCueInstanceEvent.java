@@ -76,7 +76,22 @@ package src.main.java.com.adonax.audiocue;
  * sample frame (may be fractional) current at the time of the 
  * event</li>
  * <li><strong>instanceID</strong> - an {@code int} used to 
- * identify the {@code AudioCue} instance.</li></ul>
+ * identify the {@code AudioCue} instance</li>
+ * <li><strong>renderFrame</strong> - a {@code long} containing 
+ * the frame of the clock given by {@code AudioCue.getFrameTime}
+ * on which the event takes effect in the rendered audio</li>
+ * <li><strong>presentationTime</strong> - a {@code long} 
+ * containing an estimate of when that frame is heard, as a 
+ * {@code System.nanoTime} value</li></ul>
+ * <p>
+ * The last two fields allow visuals to be synchronized with 
+ * the audio. Events are rendered ahead of being heard, by up to 
+ * the size of the buffers of the audio thread and of the output 
+ * line, and are delivered after they are rendered, so neither
+ * {@code time} nor the time of delivery is a good guide to when 
+ * the event is heard. The estimate is based on the number of 
+ * frames the output line reports having played when the event
+ * is delivered.
  * 
  * @author Philip Freihofner
  * @version AudioCue 1.1
@@ -140,6 +155,18 @@ public class AudioCueInstanceEvent {
 	 */
 	public final double frame;
 	
+	/**
+	 * the frame of the {@code AudioCue}'s clock on which the 
+	 * event takes effect, or -1 if not known
+	 */
+	public final long renderFrame;
+	
+	/**
+	 * the estimated {@code System.nanoTime()} at which the 
+	 * event is heard
+	 */
+	public final long presentationTime;
+	
 	/**
 	 * Constructor for an {@code AudioCueInstanceEvent}, a
 	 * class that is passed as a parameter for 
@@ -156,12 +183,67 @@ public class AudioCueInstanceEvent {
 	 */
 	public AudioCueInstanceEvent(Type type, AudioCue source, 
 			int instanceID, double frame)
+	{
+		this(type, source, instanceID, frame, 
+				System.currentTimeMillis());
+	}
+	
+	/**
+	 * Constructor for an {@code AudioCueInstanceEvent} with a 
+	 * given time of occurrence, for events that are delivered
+	 * after they occur.
+	 *  
+	 * @param type an {@code enum} that designates the 
+	 * category of {@code AudioCue} instance event
+	 * @param source the {@code AudioCue} that is the origin 
+	 * of the event
+	 * @param instanceID an {@code int} hook used to identify the 
+	 * {@code AudioCue}	instance
+	 * @param frame a {@code double} that holds the sample 
+	 * frame current at the time of the event
+	 * @param time a {@code long} holding the time in 
+	 * milliseconds when the event occurred
+	 */
+	public AudioCueInstanceEvent(Type type, AudioCue source, 
+			int instanceID, double frame, long time)
+	{
+		this(type, source, instanceID, frame, time, -1, 
+				System.nanoTime());
+	}
+	
+	/**
+	 * Constructor for an {@code AudioCueInstanceEvent} with a 
+	 * given time of occurrence, and with the frame of the 
+	 * clock on which the event takes effect and the estimate of
+	 * when that frame is heard.
+	 *  
+	 * @param type an {@code enum} that designates the 
+	 * category of {@code AudioCue} instance event
+	 * @param source the {@code AudioCue} that is the origin 
+	 * of the event
+	 * @param instanceID an {@code int} hook used to identify the 
+	 * {@code AudioCue}	instance
+	 * @param frame a {@code double} that holds the sample 
+	 * frame current at the time of the event
+	 * @param time a {@code long} holding the time in 
+	 * milliseconds when the event occurred
+	 * @param renderFrame a {@code long} holding the frame of the
+	 * clock on which the event takes effect
+	 * @param presentationTime a {@code long} holding the 
+	 * estimated {@code System.nanoTime()} at which the event is 
+	 * heard
+	 */
+	public AudioCueInstanceEvent(Type type, AudioCue source, 
+			int instanceID, double frame, long time, 
+			long renderFrame, long presentationTime)
 	{
 		this.type = type;
-		time = System.currentTimeMillis();
+		this.time = time;
 		this.source = source;
 		this.instanceID = instanceID;
 		this.frame = frame;
+		this.renderFrame = renderFrame;
+		this.presentationTime = presentationTime;
 	}
 }
 
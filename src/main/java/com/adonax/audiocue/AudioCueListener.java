@@ -45,10 +45,17 @@ package src.main.java.com.adonax.audiocue;
  * following method:
  * <pre>    myAudioCue.addAudioCueListener(myAudioCueListener);</pre>
  * <p>
- * The execution of the implementing methods will occur on the 
- * same thread that processes the audio data, and thus should 
- * be coded for brevity in order to minimize extraneous processing
- * that might contribute to dropouts during playback. 
+ * Instance events are not delivered on the thread that 
+ * processes the audio data. They are queued as they occur, and
+ * delivered in order on a dispatching thread shared by all 
+ * {@code AudioCue}s, or via an {@code Executor} assigned with
+ * {@code AudioCue.setEventExecutor}. A slow implementation thus
+ * does not cause dropouts during playback, but should still be 
+ * coded for brevity, as events that cannot be queued because 
+ * the listeners have fallen behind are dropped. The 
+ * {@code audioCueOpened} and {@code audioCueClosed} methods
+ * execute on the thread that opens or closes the 
+ * {@code AudioCue}.
  * 
  * @author Philip Freihofner
  * @version AudioCue 1.1
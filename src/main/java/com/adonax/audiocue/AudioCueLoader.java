@@ -0,0 +1,273 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * {@code AudioCueLoader} loads audio files as {@code AudioCue}s 
+ * concurrently, on a bounded pool of background threads, so that
+ * the many loads of a program's start-up run in parallel rather 
+ * than one after another on the calling thread. Each load returns
+ * at once with a {@code CompletableFuture}, which is completed 
+ * with the {@code AudioCue}, or completed exceptionally with the
+ * {@code UnsupportedAudioFileException} or {@code IOException} 
+ * that {@code AudioCue.makeStereoCue(URL, int)} would have 
+ * thrown.
+ * <p>
+ * Progress over all loads submitted to the {@code AudioCueLoader}
+ * can be polled, for example to drive a progress bar:
+ * <pre>
+ *     AudioCueLoader loader = new AudioCueLoader();
+ *     List&lt;CompletableFuture&lt;AudioCue&gt;&gt; cues = 
+ *             loader.loadAll(urls, polyphonies);
+ *     while (loader.getProgress() &lt; 1) { ... }
+ * </pre>
+ * <p>
+ * The pool's threads are daemon threads, which end when idle for
+ * a few seconds, so an {@code AudioCueLoader} that is no longer
+ * used need not be closed. Calling {@code close} stops the 
+ * threads once the loads already submitted are done.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public class AudioCueLoader implements AutoCloseable
+{
+	private static final AtomicInteger poolCount = new AtomicInteger();
+	
+	private final ExecutorService executor;
+	private final AudioCueCache cache;
+	private final AtomicInteger submitted = new AtomicInteger();
+	private final AtomicInteger completed = new AtomicInteger();
+	private final AtomicInteger failed = new AtomicInteger();
+	
+	/**
+	 * Constructor for {@code AudioCueLoader}, with one thread per
+	 * available processor.
+	 */
+	public AudioCueLoader()
+	{
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	
+	/**
+	 * Constructor for {@code AudioCueLoader}, with the given 
+	 * maximum number of threads.
+	 * 
+	 * @param threads an {@code int} specifying the maximum 
+	 * number of files loaded at the same time
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public AudioCueLoader(int threads) throws IllegalArgumentException
+	{
+		this(threads, null);
+	}
+	
+	/**
+	 * Constructor for {@code AudioCueLoader}, with the given 
+	 * maximum number of threads, making its cues with the given
+	 * {@code AudioCueCache}, so that cues of the same file share
+	 * its data. The cues are released to the cache as usual.
+	 * 
+	 * @param threads an {@code int} specifying the maximum 
+	 * number of files loaded at the same time
+	 * @param cache the {@code AudioCueCache} used to make the 
+	 * cues, or {@code null} to load each file for its cue
+	 * @throws IllegalArgumentException if threads is less than 1
+	 */
+	public AudioCueLoader(int threads, AudioCueCache cache) 
+			throws IllegalArgumentException
+	{
+		this.cache = cache;
+		if (threads < 1) throw new IllegalArgumentException(
+				"threads must be at least 1: " + threads);
+		
+		final int pool = poolCount.incrementAndGet();
+		final AtomicInteger threadCount = new AtomicInteger();
+		ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads,
+				5, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				r -> {
+					Thread t = new Thread(r, "AudioCue loader " + pool 
+							+ "-" + threadCount.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+		tpe.allowCoreThreadTimeOut(true);
+		executor = tpe;
+	}
+	
+	/**
+	 * Loads an {@code AudioCue} in the background, as with
+	 * {@code AudioCue.makeStereoCue(URL, int)}.
+	 * 
+	 * @param url a {@code URL} for the source file 
+	 * @param polyphony an {@code int} specifying 
+	 * the maximum number of concurrent instances
+	 * @return a {@code CompletableFuture} for the 
+	 * {@code AudioCue}
+	 * @throws RejectedExecutionException if the 
+	 * {@code AudioCueLoader} has been closed
+	 */
+	public CompletableFuture<AudioCue> load(URL url, int polyphony)
+			throws RejectedExecutionException
+	{
+		CompletableFuture<AudioCue> future = new CompletableFuture<>();
+		submitted.incrementAndGet();
+		try
+		{
+			executor.execute(() -> load(url, polyphony, future));
+		}
+		catch (RejectedExecutionException e)
+		{
+			submitted.decrementAndGet();
+			throw e;
+		}
+		return future;
+	}
+	
+	private void load(URL url, int polyphony, 
+			CompletableFuture<AudioCue> future)
+	{
+		try
+		{
+			AudioCue cue = cache == null 
+					? AudioCue.makeStereoCue(url, polyphony)
+					: cache.makeStereoCue(url, polyphony);
+			completed.incrementAndGet();
+			future.complete(cue);
+		}
+		catch (Throwable e)
+		{
+			// on an Error too, so that the future and the progress
+			// complete; the Error is passed on through the future
+			failed.incrementAndGet();
+			future.completeExceptionally(e);
+		}
+	}
+	
+	/**
+	 * Loads an {@code AudioCue} in the background for each 
+	 * {@code URL}, with the polyphony at the same position.
+	 * The futures are returned in the same order as the 
+	 * {@code URL}s, regardless of the order in which the loads 
+	 * complete.
+	 * 
+	 * @param urls a {@code List} of {@code URL}s for the 
+	 * source files
+	 * @param polyphonies an {@code int} array specifying the 
+	 * maximum number of concurrent instances of each cue
+	 * @return a {@code List} of {@code CompletableFuture}s for 
+	 * the {@code AudioCue}s
+	 * @throws IllegalArgumentException if the sizes of urls 
+	 * and polyphonies differ
+	 */
+	public List<CompletableFuture<AudioCue>> loadAll(List<URL> urls,
+			int[] polyphonies) throws IllegalArgumentException
+	{
+		if (urls.size() != polyphonies.length) 
+			throw new IllegalArgumentException(urls.size() 
+					+ " urls, but " + polyphonies.length + " polyphonies");
+		
+		List<CompletableFuture<AudioCue>> futures = 
+				new ArrayList<>(urls.size());
+		for (int i = 0; i < polyphonies.length; i++)
+		{
+			futures.add(load(urls.get(i), polyphonies[i]));
+		}
+		return futures;
+	}
+	
+	/**
+	 * Returns the number of loads submitted so far.
+	 * 
+	 * @return the number of loads submitted
+	 */
+	public int getSubmittedCount() { return submitted.get(); }
+	
+	/**
+	 * Returns the number of loads completed successfully.
+	 * 
+	 * @return the number of {@code AudioCue}s loaded
+	 */
+	public int getCompletedCount() { return completed.get(); }
+	
+	/**
+	 * Returns the number of loads that failed.
+	 * 
+	 * @return the number of loads that completed exceptionally
+	 */
+	public int getFailedCount() { return failed.get(); }
+	
+	/**
+	 * Returns the fraction of the submitted loads that are done,
+	 * whether successfully or not. With no loads submitted, the
+	 * progress is 1.
+	 * 
+	 * @return the progress, from 0 to 1, as a {@code double}
+	 */
+	public double getProgress()
+	{
+		int done = completed.get() + failed.get();
+		int total = submitted.get();
+		return total == 0 ? 1 : Math.min(1, done / (double)total);
+	}
+	
+	/**
+	 * Stops the threads of the {@code AudioCueLoader} once the 
+	 * loads already submitted are done. Further loads are 
+	 * rejected.
+	 */
+	@Override
+	public void close()
+	{
+		executor.shutdown();
+	}
+}
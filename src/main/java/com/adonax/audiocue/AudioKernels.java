@@ -0,0 +1,153 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+/**
+ * {@code AudioKernels} holds the bulk array operations used on 
+ * the audio thread for mixing and for converting the normalized
+ * float data to the output format, and when loading and 
+ * reading compact cues, for converting between 16-bit PCM data
+ * and normalized floats. 
+ * <p>
+ * The loops are deliberately kept simple: a single counted loop
+ * over primitive arrays, no calls, and no data-dependent 
+ * branches (clamping uses {@code Math.min} and {@code Math.max}). 
+ * This is the shape that the HotSpot C2 compiler's superword 
+ * optimization recognizes and compiles to SIMD instructions on 
+ * platforms that support them, so the same code vectorizes where 
+ * possible and runs as plain scalar code otherwise, without a
+ * dependency on an incubator module.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+final class AudioKernels 
+{
+	private AudioKernels() {}
+	
+	/*
+	 * Adds length values of src, starting at srcPos, into dest, 
+	 * starting at destPos.
+	 */
+	static void add(float[] src, int srcPos, float[] dest, 
+			int destPos, int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			dest[destPos + i] += src[srcPos + i];
+		}
+	}
+	
+	/*
+	 * Adds frames stereo frames of src, starting at the array 
+	 * position srcPos, into dest, starting at destPos, applying 
+	 * a volume and a gain for each channel. Each factor changes 
+	 * linearly by its increment per frame. The factors are 
+	 * computed from the frame number rather than accumulated, 
+	 * so that the loop carries no dependency between frames.
+	 */
+	static void addStereo(float[] src, int srcPos, float[] dest, 
+			int destPos, int frames, float volume, float volumeIncr,
+			float gainL, float gainLIncr, float gainR, float gainRIncr)
+	{
+		for (int i = 0; i < frames; i++)
+		{
+			final float v = volume + i * volumeIncr;
+			dest[destPos + i * 2] += src[srcPos + i * 2] 
+					* v * (gainL + i * gainLIncr);
+			dest[destPos + i * 2 + 1] += src[srcPos + i * 2 + 1] 
+					* v * (gainR + i * gainRIncr);
+		}
+	}
+	
+	/*
+	 * Clamps length values of buffer, starting at pos, to the 
+	 * range [-1, 1].
+	 */
+	static void clamp(float[] buffer, int pos, int length)
+	{
+		for (int i = pos, n = pos + length; i < n; i++)
+		{
+			buffer[i] = Math.max(-1f, Math.min(1f, buffer[i]));
+		}
+	}
+	
+	/*
+	 * Converts length normalized values of src, starting at 0, to
+	 * signed 16-bit little-endian PCM in dest. Values are clamped 
+	 * to [-1, 1] as part of the same pass, so out-of-range sums 
+	 * saturate instead of wrapping around. The source array is
+	 * not modified.
+	 */
+	static void toPcm16LE(float[] src, byte[] dest, int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			int sample = (int)(Math.max(-1f, Math.min(1f, src[i])) 
+					* 32767);
+			dest[i * 2] = (byte)sample;
+			dest[i * 2 + 1] = (byte)(sample >> 8);
+		}
+	}
+	
+	/*
+	 * Converts length signed 16-bit values of src, starting at 
+	 * srcPos, to normalized values in dest, starting at destPos.
+	 */
+	static void fromPcm16(short[] src, int srcPos, float[] dest, 
+			int destPos, int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			dest[destPos + i] = src[srcPos + i] * (1f / 32767);
+		}
+	}
+	
+	/*
+	 * Converts length normalized values of src, starting at 0, to
+	 * signed 16-bit values in dest, clamping as toPcm16LE does.
+	 */
+	static void toPcm16(float[] src, short[] dest, int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			dest[i] = (short)Math.round(
+					Math.max(-1f, Math.min(1f, src[i])) * 32767);
+		}
+	}
+}
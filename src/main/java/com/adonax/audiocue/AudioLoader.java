@@ -0,0 +1,597 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioFormat.Encoding;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * {@code AudioLoader} reads audio files for {@code AudioCue} and 
+ * converts them, once, at load time, to the format used on the 
+ * audio thread: stereo frames of normalized {@code float} values
+ * at 44100 frames per second. The rendering code thus never has
+ * to deal with the format of the source.
+ * <p>
+ * Any PCM encoding that {@code AudioSystem} can read is accepted:
+ * signed or unsigned integers of 8, 16, 24 or 32 bits, and 
+ * floating point values of 32 or 64 bits, in either byte order.
+ * Other encodings, such as u-law, are first converted to signed 
+ * PCM by {@code AudioSystem}, where it offers a converter. Mono 
+ * sources are copied to both channels, and of sources with more
+ * than two channels, the first two, front left and front right 
+ * in the wav ordering, are kept.
+ * <p>
+ * A source at a sample rate other than 44100 is converted with 
+ * the band-limited kernel of {@link Interpolation#SINC}, which 
+ * is widened when the source rate is higher, so that frequencies
+ * above the new Nyquist limit are filtered out rather than 
+ * aliased.
+ * <p>
+ * The source is read in large chunks. The frames of a chunk, 
+ * and the frames of the sample rate conversion, are divided into
+ * slices that are converted in parallel on the common 
+ * {@code ForkJoinPool}, so that large files make use of all 
+ * cores while short ones are converted on the calling thread.
+ * <p>
+ * For {@code SampleStorage.MAPPED}, {@code map} returns data held
+ * in a memory-mapped file rather than an array. A local wav or 
+ * RF64 file that is already 16-bit stereo PCM at 44100 frames per
+ * second is mapped in place, without reading it. Any other source
+ * is converted, a chunk at a time, into a temporary file, so that
+ * neither is limited by the length of an array; only a source at 
+ * another sample rate is first converted whole, as above.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+final class AudioLoader 
+{
+	// frames in one slice of parallel work
+	private static final int SLICE_FRAMES = 1 << 16;
+	private static final int CHUNK_BYTES = 1 << 22;
+	// stereo output, so two entries per frame
+	private static final int MAX_FRAMES = Integer.MAX_VALUE >> 1;
+	
+	// source sample representations
+	private static final int PCM8_SIGNED = 0;
+	private static final int PCM8_UNSIGNED = 1;
+	private static final int PCM16_SIGNED = 2;
+	private static final int PCM16_UNSIGNED = 3;
+	private static final int PCM24_SIGNED = 4;
+	private static final int PCM32_SIGNED = 5;
+	private static final int FLOAT32 = 6;
+	private static final int FLOAT64 = 7;
+	
+	private final int kind;
+	private final ByteOrder order;
+	private final int frameSize;
+	// byte offset of the sample taken for the right channel
+	private final int rightOffset;
+	private final double speed;
+	// silent frames around the source, read by the SINC kernel
+	private final int pad;
+	
+	/**
+	 * Loads the audio file at the {@code URL}, converting it to
+	 * stereo frames of normalized {@code float} values at 44100
+	 * frames per second.
+	 * 
+	 * @param url a {@code URL} for the source file
+	 * @return a {@code float} array of stereo frames
+	 * @throws UnsupportedAudioFileException if the file is not 
+	 * audio that {@code AudioSystem} can read as PCM
+	 * @throws IOException if unable to load the file
+	 */
+	static float[] load(URL url) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		return load(AudioSystem.getAudioInputStream(url));
+	}
+	
+	/*
+	 * Converts the audio of the stream, then closes it.
+	 */
+	static float[] load(AudioInputStream source) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		try (AudioInputStream ais = toPcm(source))
+		{
+			return new AudioLoader(ais.getFormat()).convert(ais);
+		}
+		finally
+		{
+			source.close();
+		}
+	}
+	
+	/*
+	 * Returns the audio of the file at the URL as 16-bit data 
+	 * held in a memory-mapped file.
+	 */
+	static CueData map(URL url) 
+			throws UnsupportedAudioFileException, IOException
+	{
+		if ("file".equals(url.getProtocol()))
+		{
+			try
+			{
+				CueData data = mapWav(new File(url.toURI()));
+				if (data != null) return data;
+			}
+			catch (URISyntaxException | IllegalArgumentException e)
+			{
+				// not a plain file path: read it as a stream
+			}
+		}
+		
+		AudioInputStream source = AudioSystem.getAudioInputStream(url);
+		try (AudioInputStream ais = toPcm(source))
+		{
+			AudioLoader loader = new AudioLoader(ais.getFormat());
+			if (loader.speed != 1)
+			{
+				return CueData.of(loader.convert(ais), 
+						SampleStorage.MAPPED);
+			}
+			// a whole chunk per write, so that it is decoded in
+			// parallel slices
+			final int chunkFrames = Math.max(1, 
+					CHUNK_BYTES / loader.frameSize);
+			final byte[] chunk = new byte[chunkFrames * loader.frameSize];
+			return CueData.Mapped.write(chunkFrames, buffer -> 
+			{
+				int n = readChunk(ais, chunk)
+						/ loader.frameSize;
+				loader.decodeChunk(chunk, n, buffer, 0);
+				return n;
+			});
+		}
+		finally
+		{
+			source.close();
+		}
+	}
+	
+	/*
+	 * Maps the data chunk of a wav or RF64 file in place, if the
+	 * file is 16-bit stereo PCM at 44100 frames per second, or 
+	 * else returns null. The 64-bit sizes of an RF64 file, held
+	 * in its ds64 chunk, allow data of more than 4 GB.
+	 */
+	private static CueData mapWav(File file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file.toPath(), 
+				StandardOpenOption.READ))
+		{
+			final ByteBuffer header = ByteBuffer.allocate(40)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (read(channel, header, 0, 12) < 12) return null;
+			final String riff = fourCC(header, 0);
+			if (!(riff.equals("RIFF") || riff.equals("RF64")) 
+					|| !fourCC(header, 8).equals("WAVE")) return null;
+			
+			long dataSize = -1;
+			boolean engineFormat = false;
+			long pos = 12;
+			while (read(channel, header, pos, 8) == 8)
+			{
+				final String id = fourCC(header, 0);
+				long size = header.getInt(4) & 0xffffffffL;
+				final long body = pos + 8;
+				if (id.equals("ds64"))
+				{
+					if (read(channel, header, body, 16) < 16) return null;
+					dataSize = header.getLong(8);
+				}
+				else if (id.equals("fmt "))
+				{
+					final int n = read(channel, header, body, 
+							(int)Math.min(size, 40));
+					if (n < 16) return null;
+					int tag = header.getShort(0) & 0xffff;
+					if (tag == 0xfffe && n >= 26)
+					{
+						// WAVE_FORMAT_EXTENSIBLE: the subformat
+						tag = header.getShort(24) & 0xffff;
+					}
+					engineFormat = tag == 1 
+							&& header.getShort(2) == 2 
+							&& header.getInt(4) == 44100
+							&& header.getShort(12) == 4 
+							&& header.getShort(14) == 16;
+				}
+				else if (id.equals("data"))
+				{
+					if (!engineFormat) return null;
+					if (riff.equals("RF64") && size == 0xffffffffL) 
+					{
+						size = dataSize;
+					}
+					// an unknown or empty size, as left by a writer
+					// that did not finish: read the file as a stream
+					if (size <= 0) return null;
+					size = Math.min(size, channel.size() - body);
+					return new CueData.Mapped(channel, body, size / 4);
+				}
+				pos = body + size + (size & 1);
+			}
+			return null;
+		}
+	}
+	
+	/*
+	 * Reads length bytes of the channel, from position pos, into
+	 * the start of the buffer, returning the number read.
+	 */
+	private static int read(FileChannel channel, ByteBuffer buffer, 
+			long pos, int length) throws IOException
+	{
+		buffer.clear().limit(length);
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, pos + buffer.position()) <= 0) break;
+		}
+		return buffer.position();
+	}
+	
+	private static String fourCC(ByteBuffer buffer, int p)
+	{
+		return new String(buffer.array(), p, 4, StandardCharsets.US_ASCII);
+	}
+	
+	/*
+	 * Returns the stream itself if it is PCM, or else a stream 
+	 * converted to signed PCM by AudioSystem.
+	 */
+	private static AudioInputStream toPcm(AudioInputStream ais) 
+			throws UnsupportedAudioFileException
+	{
+		Encoding encoding = ais.getFormat().getEncoding();
+		if (encoding.equals(Encoding.PCM_SIGNED)
+				|| encoding.equals(Encoding.PCM_UNSIGNED)
+				|| encoding.equals(Encoding.PCM_FLOAT))
+		{
+			return ais;
+		}
+		try
+		{
+			return AudioSystem.getAudioInputStream(
+					Encoding.PCM_SIGNED, ais);
+		}
+		catch (IllegalArgumentException e)
+		{
+			throw new UnsupportedAudioFileException(
+					"No PCM conversion for encoding: " + encoding);
+		}
+	}
+	
+	private AudioLoader(AudioFormat format) 
+			throws UnsupportedAudioFileException
+	{
+		kind = kindOf(format);
+		order = format.isBigEndian() 
+				? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+		frameSize = format.getFrameSize();
+		int channels = format.getChannels();
+		if (channels < 1 || frameSize < channels)
+		{
+			throw new UnsupportedAudioFileException(
+					"Unsupported audio format: " + format);
+		}
+		rightOffset = channels > 1 ? frameSize / channels : 0;
+		
+		float rate = format.getSampleRate();
+		float targetRate = AudioCue.audioFormat.getSampleRate();
+		speed = (rate == AudioSystem.NOT_SPECIFIED || rate == targetRate) 
+				? 1 : rate / (double)targetRate;
+		pad = speed == 1 ? 0 : Math.max(
+				Interpolation.SINC.before((float)speed),
+				Interpolation.SINC.after((float)speed));
+	}
+	
+	private static int kindOf(AudioFormat format) 
+			throws UnsupportedAudioFileException
+	{
+		Encoding encoding = format.getEncoding();
+		int bits = format.getSampleSizeInBits();
+		if (encoding.equals(Encoding.PCM_FLOAT))
+		{
+			if (bits == 32) return FLOAT32;
+			if (bits == 64) return FLOAT64;
+		}
+		else if (encoding.equals(Encoding.PCM_UNSIGNED))
+		{
+			if (bits == 8) return PCM8_UNSIGNED;
+			if (bits == 16) return PCM16_UNSIGNED;
+		}
+		else
+		{
+			if (bits == 8) return PCM8_SIGNED;
+			if (bits == 16) return PCM16_SIGNED;
+			if (bits == 24) return PCM24_SIGNED;
+			if (bits == 32) return PCM32_SIGNED;
+		}
+		throw new UnsupportedAudioFileException(
+				"Unsupported audio format: " + format);
+	}
+	
+	private float[] convert(AudioInputStream ais) throws IOException
+	{
+		long frameLength = ais.getFrameLength();
+		int frames = MAX_FRAMES;
+		if (frameLength > MAX_FRAMES)
+		{
+			System.out.println(
+					"WARNING: Clip is too large to entirely fit!"
+					+ " SampleStorage.MAPPED has no such limit.");
+		}
+		else if (frameLength != AudioSystem.NOT_SPECIFIED)
+		{
+			frames = (int)frameLength;
+		}
+		
+		float[] source = decode(ais, frames);
+		return speed == 1 ? source : resample(source);
+	}
+	
+	/*
+	 * Decodes up to frames frames of the stream, preceded and 
+	 * followed by pad silent frames. When the frame length of 
+	 * the stream is not known, frames is MAX_FRAMES, and the 
+	 * array is grown as needed.
+	 */
+	private float[] decode(InputStream in, int frames) 
+			throws IOException
+	{
+		float[] out = new float[((frames < MAX_FRAMES ? frames 
+				: CHUNK_BYTES / frameSize) + pad * 2) * 2];
+		
+		final byte[] chunk = new byte[Math.max(1, 
+				CHUNK_BYTES / frameSize) * frameSize];
+		int decoded = 0;
+		int bytesRead;
+		while (decoded < frames 
+				&& (bytesRead = readChunk(in, chunk)) >= frameSize)
+		{
+			final int n = Math.min(bytesRead / frameSize, 
+					frames - decoded);
+			final int needed = (pad + decoded + n + pad) * 2;
+			if (needed > out.length)
+			{
+				out = Arrays.copyOf(out, (int)Math.min(
+						Math.max(needed, out.length * 2L), 
+						(MAX_FRAMES + pad * 2L) * 2));
+			}
+			
+			decodeChunk(chunk, n, out, pad + decoded);
+			decoded += n;
+		}
+		
+		final int length = (decoded + pad * 2) * 2;
+		return length == out.length ? out : Arrays.copyOf(out, length);
+	}
+	
+	/*
+	 * Decodes the first n frames of the chunk to stereo frames of
+	 * out, starting at frame outFrame, in parallel slices.
+	 */
+	private void decodeChunk(byte[] chunk, int n, float[] out, 
+			int outFrame)
+	{
+		final int slices = (n + SLICE_FRAMES - 1) / SLICE_FRAMES;
+		if (slices == 1)
+		{
+			decode(chunk, 0, n, out, outFrame);
+		}
+		else
+		{
+			IntStream.range(0, slices).parallel().forEach(s -> 
+			{
+				final int first = s * SLICE_FRAMES;
+				decode(chunk, first, Math.min(SLICE_FRAMES, n - first), 
+						out, outFrame + first);
+			});
+		}
+	}
+	
+	/*
+	 * Decodes frames frames of the chunk, starting at frame 
+	 * first, to stereo frames of out, starting at frame 
+	 * outFrame. Each representation has its own loop, so that
+	 * the choice is made once per slice rather than per sample.
+	 */
+	private void decode(byte[] chunk, int first, int frames, 
+			float[] out, int outFrame)
+	{
+		final ByteBuffer bytes = ByteBuffer.wrap(chunk).order(order);
+		final int r = rightOffset;
+		int p = first * frameSize;
+		final int end = p + frames * frameSize;
+		int o = outFrame * 2;
+		
+		if (kind == PCM16_SIGNED && frameSize == 4)
+		{
+			// the layout of the engine: every sample in turn, read
+			// straight from a view of the chunk without a copy
+			final ShortBuffer samples = bytes.asShortBuffer();
+			for (int i = p / 2, n = i + frames * 2; i < n; i++, o++)
+			{
+				out[o] = samples.get(i) * (1f / 32767);
+			}
+			return;
+		}
+		
+		switch (kind)
+		{
+		case PCM8_SIGNED:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = bytes.get(p) * (1f / 128);
+				out[o + 1] = bytes.get(p + r) * (1f / 128);
+			}
+			break;
+		case PCM8_UNSIGNED:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = ((bytes.get(p) & 0xff) - 128) * (1f / 128);
+				out[o + 1] = ((bytes.get(p + r) & 0xff) - 128) 
+						* (1f / 128);
+			}
+			break;
+		case PCM16_SIGNED:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = bytes.getShort(p) * (1f / 32767);
+				out[o + 1] = bytes.getShort(p + r) * (1f / 32767);
+			}
+			break;
+		case PCM16_UNSIGNED:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = ((bytes.getShort(p) & 0xffff) - 32768) 
+						* (1f / 32767);
+				out[o + 1] = ((bytes.getShort(p + r) & 0xffff) - 32768) 
+						* (1f / 32767);
+			}
+			break;
+		case PCM24_SIGNED:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = pcm24(chunk, p) * (1f / 8388607);
+				out[o + 1] = pcm24(chunk, p + r) * (1f / 8388607);
+			}
+			break;
+		case PCM32_SIGNED:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = (float)(bytes.getInt(p) * (1.0 / 2147483647));
+				out[o + 1] = (float)(bytes.getInt(p + r) 
+						* (1.0 / 2147483647));
+			}
+			break;
+		case FLOAT32:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = bytes.getFloat(p);
+				out[o + 1] = bytes.getFloat(p + r);
+			}
+			break;
+		case FLOAT64:
+			for (; p < end; p += frameSize, o += 2)
+			{
+				out[o] = (float)bytes.getDouble(p);
+				out[o + 1] = (float)bytes.getDouble(p + r);
+			}
+			break;
+		}
+	}
+	
+	private int pcm24(byte[] chunk, int p)
+	{
+		return order == ByteOrder.LITTLE_ENDIAN
+				? (chunk[p] & 0xff) | (chunk[p + 1] & 0xff) << 8 
+						| chunk[p + 2] << 16
+				: chunk[p] << 16 | (chunk[p + 1] & 0xff) << 8 
+						| (chunk[p + 2] & 0xff);
+	}
+	
+	/*
+	 * Converts the padded source to 44100 frames per second, in
+	 * parallel slices. Each slice is interpolated a block at a 
+	 * time, with the read position of each block computed from 
+	 * its frame number, so that no rounding error accumulates.
+	 */
+	private float[] resample(float[] source)
+	{
+		final int sourceFrames = source.length / 2 - pad * 2;
+		final int frames = (int)Math.min(MAX_FRAMES, 
+				(long)Math.ceil(sourceFrames / speed));
+		final float[] out = new float[frames * 2];
+		
+		final int slices = (frames + SLICE_FRAMES - 1) / SLICE_FRAMES;
+		IntStream.range(0, slices).parallel().forEach(s -> 
+		{
+			final float[] block = new float[1024 * 2];
+			final int end = Math.min(frames, (s + 1) * SLICE_FRAMES);
+			for (int frame = s * SLICE_FRAMES; frame < end; 
+					frame += 1024)
+			{
+				final int n = Math.min(1024, end - frame);
+				Interpolation.SINC.interpolate(source, 
+						pad + frame * speed, (float)speed, 0, block, n);
+				System.arraycopy(block, 0, out, frame * 2, n * 2);
+			}
+		});
+		return out;
+	}
+	
+	/*
+	 * Reads until the buffer is full or the stream ends, so that
+	 * only the final chunk can be short, returning the number of
+	 * bytes read.
+	 */
+	private static int readChunk(InputStream in, byte[] buffer) 
+			throws IOException
+	{
+		int filled = 0;
+		int bytesRead;
+		while (filled < buffer.length && (bytesRead = 
+				in.read(buffer, filled, buffer.length - filled)) != -1)
+		{
+			filled += bytesRead;
+		}
+		return filled;
+	}
+}
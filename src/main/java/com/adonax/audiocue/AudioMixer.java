@@ -36,16 +36,20 @@
  */
 package src.main.java.com.adonax.audiocue;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
-import javax.sound.sampled.SourceDataLine;
 
 /**
  * {@code AudioMixer} combines the output of members of an  
- * {@code AudioMixerTrack} collection into a single 
- * {@code SourceDataLine} output line. Classes implementing
+ * {@code AudioMixerTrack} collection into a single output, 
+ * by default a {@code SourceDataLine}, or any other 
+ * {@code OutputSink}. Classes implementing
  * {@code AudioMixerTrack} can be added and removed from the
  * mix asynchronously, with the operation occurring at the  
  * next buffer iteration. Source tracks must provide for the 
@@ -57,6 +61,11 @@ import javax.sound.sampled.SourceDataLine;
  * of a <em>mute</em> control, accessible via the {@code running}
  * variable. The mixer imposes a simple floor/ceiling of -1, 1, 
  * to guard against volume overflows.
+ * <p>
+ * The {@code AudioMixer} keeps a count of the frames it has 
+ * mixed, which serves as the clock for tracks that schedule 
+ * events to the sample frame, such as the {@code AudioCue}
+ * methods that start an instance at a given frame.
  * 
  * @author Philip Freihofner
  * @version AudioCue 1.1
@@ -78,11 +87,30 @@ public class AudioMixer
 	
 	public final int bufferSize, sdlByteBufferSize, 
 			readBufferSize;
-	private float[] audioData;
 	private Mixer mixer;
+	private volatile OutputSink outputSink;
 	public final int threadPriority;
 	
 	private volatile boolean running;
+	// set on start, and cleared by the audio thread once it has 
+	// rendered its last buffer
+	private volatile boolean rendering;
+	// frames mixed so far, shared by the tracks
+	final FrameClock clock = new FrameClock();
+	// allocated on the first offline render
+	private OfflineRender offline;
+	
+	/**
+	 * Returns the number of frames mixed since the 
+	 * {@code AudioMixer} was first started. The count only 
+	 * increases, and while a buffer is being mixed it gives 
+	 * the number of that buffer's first frame. It is the time 
+	 * base for scheduling starts with methods such as 
+	 * {@code AudioCue.start(int, long)}.
+	 * 
+	 * @return the frame count as a {@code long}
+	 */
+	public long getFrameTime() { return clock.get(); }
 
 	/**
 	 * Constructor for {@code AudioMixer}, using default
@@ -129,6 +157,23 @@ public class AudioMixer
 		this.threadPriority = threadPriority;
 	}
 	
+	/**
+	 * Assigns the {@code OutputSink} to which the mix is written, 
+	 * taking effect the next time the {@code AudioMixer} is 
+	 * started. With the default value of {@code null}, the mix is
+	 * played through a {@code SourceDataLine} obtained from the
+	 * {@code Mixer} given to the constructor. For example, a 
+	 * {@code NullSink} allows the {@code AudioMixer} to run in 
+	 * real time on a machine without a sound device.
+	 * 
+	 * @param outputSink an {@code OutputSink}, or {@code null}
+	 * @see OutputSink
+	 */
+	public void setOutputSink(OutputSink outputSink)
+	{
+		this.outputSink = outputSink;
+	}
+	
 	// reminder: this does NOT update the trackCache!!
 	/**
 	 * Designates an {@code AudioMixerTrack} to be staged
@@ -184,7 +229,6 @@ public class AudioMixer
 		
 		trackCache = workCopyTracks;
 		trackCacheUpdated = true;
-		System.out.println("CoreMixer.updateTracks, new size:" + size);
 	}
 	
 	/**
@@ -207,13 +251,35 @@ public class AudioMixer
 		
 		updateTracks();
 		
+		OutputSink sink = outputSink;
 		AudioMixerPlayer player = new AudioMixerPlayer(
-				mixer, bufferSize); 
+				sink == null ? new SourceDataLineSink(mixer) : sink, 
+				bufferSize); 
 		Thread t = new Thread(player);
 		t.setPriority(threadPriority);
-		t.start();
-		
+		// set before the thread starts, which tests the flag
 		running = true;
+		rendering = true;
+		// calls on the cues are queued for the audio thread from
+		// now on, once those being applied directly are done
+		for (AudioMixerTrack track : trackManager)
+		{
+			if (track instanceof AudioCue) 
+			{
+				((AudioCue)track).awaitDirectCommands();
+			}
+		}
+		t.start();
+	}
+	
+	/*
+	 * True while the audio thread of the mixer may be rendering
+	 * its tracks. A stopped mixer remains rendering until its
+	 * thread has finished the current buffer.
+	 */
+	boolean isRendering()
+	{
+		return rendering;
 	}
 	
 	/**
@@ -230,86 +296,224 @@ public class AudioMixer
 		running = false;
 	}
 	
-    private float[] fillBufferFromTracks(float[] normalizedOut)
+    /*
+     * Sums frames of the tracks into normalizedOut, skipping 
+     * tracks that report being silent. Returns false if no track
+     * was summed, in which case normalizedOut is left untouched.
+     */
+    private boolean fillBufferFromTracks(float[] normalizedOut, 
+    		int frames)
 	{	
+    	boolean sounding = false;
     	// loop through all tracks, summing	
 		for (int n = 0; n < trackCount; n++)	
 		{
-			if (mixerTracks[n].isRunning())
+			if (mixerTracks[n].isRunning() 
+					&& !mixerTracks[n].isSilent())
 			{
+				sounding = true;
 				try 
 				{
-					audioData = mixerTracks[n].readTrack();
-					for (int i = 0; i < readBufferSize; i++)
-					{
-						normalizedOut[i] += audioData[i];
-					}
+					// tracks add themselves into the mix
+					mixerTracks[n].mixTrack(normalizedOut, 0, frames);
 				} 
 				catch (Exception e) 
 				{
 					e.printStackTrace();
 				}							
 			}
-			for (int i = 0; i < readBufferSize; i++)
-			{
-				if (normalizedOut[i] > 1)
-				{
-					normalizedOut[i] = 1;
-				}
-				else if (normalizedOut[i] < -1)
-				{
-					normalizedOut[i] = -1;
-				}
-			}
 		}
-		return normalizedOut;
+		// clamp once, after all tracks are summed
+		if (sounding)
+		{
+			AudioKernels.clamp(normalizedOut, 0, frames * 2);
+		}
+		return sounding;
 	}
     
+	/*
+	 * Takes up the tracks staged by updateTracks.
+	 */
+	private void loadTrackCache()
+	{
+    	if (trackCacheUpdated)
+    	{
+    		/*
+    		 * Concurrency plan: Better to allow a late  
+    		 * or redundant update than to skip an update.
+    		 * Example: flag = true, next line resets, but 
+    		 * updater sets true again prior to mixerTracks
+    		 * assignment. We might load the same trackCache
+    		 * twice. That is OK. 
+    		 */
+    		trackCacheUpdated = false; 
+    		mixerTracks = trackCache;
+    		trackCount = mixerTracks.length;
+    	}
+	}
+	
+	/*
+	 * Offline rendering, into the start of a zero-filled buffer.
+	 */
+	private void renderBlock(float[] buffer, int frames)
+	{
+		loadTrackCache();
+		Arrays.fill(buffer, 0, frames * 2, 0);
+		fillBufferFromTracks(buffer, frames);
+		clock.advance(frames);
+	}
+	
+	/*
+	 * The work buffers of the offline render are only allocated 
+	 * if it is used. Offline rendering is confined to one thread
+	 * at a time, like the audio thread it stands in for.
+	 */
+	private OfflineRender offline()
+	{
+		if (offline == null)
+		{
+			offline = new OfflineRender(this::renderBlock, bufferSize);
+		}
+		return offline;
+	}
+	
+	private void checkOffline() throws IllegalStateException
+	{
+		if (running) throw new IllegalStateException(
+				"AudioMixer is running!");
+	}
+	
+	/**
+	 * Renders the mix of the tracks offline, as fast as the cpu
+	 * allows, rather than in real time to an output line. The
+	 * {@code AudioMixer} must not be running. The rendering runs
+	 * on the calling thread and advances the clock given by 
+	 * {@code getFrameTime}, so instances scheduled to start on 
+	 * a given frame start on that frame, and changes made between
+	 * two calls take effect on the first frame of the second.
+	 * 
+	 * @param out a {@code float} array to receive the stereo
+	 * frames, as normalized values
+	 * @param offset an {@code int} specifying the first frame 
+	 * of out to be written
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to render
+	 * @throws IllegalStateException if the {@code AudioMixer}
+	 * is running
+	 */
+	public void render(float[] out, int offset, int frames)
+			throws IllegalStateException
+	{
+		checkOffline();
+		offline().toFloats(out, offset, frames);
+	}
+	
+	/**
+	 * Renders the given number of frames offline, returning them
+	 * in a new array. In all other respects, this method is the
+	 * same as {@code render(float[], int, int)}.
+	 * 
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to render
+	 * @return a {@code float} array of stereo frames
+	 * @throws IllegalStateException if the {@code AudioMixer}
+	 * is running
+	 */
+	public float[] render(int frames) throws IllegalStateException
+	{
+		float[] out = new float[frames * 2];
+		render(out, 0, frames);
+		return out;
+	}
+	
+	/**
+	 * Renders the given number of frames offline into a 
+	 * {@code ByteBuffer}, as 16-bit little-endian PCM, from the
+	 * buffer's current position. In all other respects, this 
+	 * method is the same as {@code render(float[], int, int)}.
+	 * 
+	 * @param out a {@code ByteBuffer} with room for four bytes
+	 * per frame
+	 * @param frames an {@code int} specifying the number of 
+	 * frames to render
+	 * @throws IllegalStateException if the {@code AudioMixer}
+	 * is running
+	 */
+	public void render(ByteBuffer out, int frames) 
+			throws IllegalStateException
+	{
+		checkOffline();
+		offline().toBytes(out, frames);
+	}
+	
+	/**
+	 * Renders the given number of frames offline to a wav file,
+	 * which is created or replaced. In all other respects, this 
+	 * method is the same as {@code render(float[], int, int)}.
+	 * 
+	 * @param wavFile the {@code File} to be written
+	 * @param frames a {@code long} specifying the number of 
+	 * frames to render
+	 * @throws IOException if the file cannot be written, in which
+	 * case the incomplete file is deleted
+	 * @throws IllegalStateException if the {@code AudioMixer}
+	 * is running
+	 */
+	public void render(File wavFile, long frames) 
+			throws IOException, IllegalStateException
+	{
+		checkOffline();
+		offline().toWav(wavFile, frames);
+	}
+	
 	private class AudioMixerPlayer implements Runnable
 	{
-		private SourceDataLine sdl;
+		private OutputSink sink;
 		private float[] readBuffer;
 		private byte[] audioBytes;
+		// true while the buffers hold nothing but silence
+		private boolean buffersSilent;
 		
-		AudioMixerPlayer(Mixer mixer, int bufferFrames) throws 
+		AudioMixerPlayer(OutputSink sink, int bufferFrames) throws 
 		LineUnavailableException
 		{
+			readBuffer = new float[readBufferSize];
 			audioBytes = new byte[sdlByteBufferSize];
 			
-			sdl = AudioCue.getSourceDataLine(mixer, AudioCue.info);
-			sdl.open(AudioCue.audioFormat, sdlByteBufferSize);
-			sdl.start();
+			this.sink = sink;
+			sink.open(AudioCue.audioFormat, sdlByteBufferSize);
 		}
 		
 		// Sound Thread
 		public void run()
 		{
+			clock.setSink(sink);
 			while(running)
 			{				
-		    	if (trackCacheUpdated)
-		    	{
-		    		/*
-		    		 * Concurrency plan: Better to allow a late  
-		    		 * or redundant update than to skip an update.
-		    		 * Example: flag = true, next line resets, but 
-		    		 * updater sets true again prior to mixerTracks
-		    		 * assignment. We might load the same trackCache
-		    		 * twice. That is OK. 
-		    		 */
-		    		trackCacheUpdated = false; 
-		    		mixerTracks = trackCache;
-		    		trackCount = mixerTracks.length;
-		    	}
-				readBuffer = new float[readBufferSize];
-				readBuffer = fillBufferFromTracks(readBuffer);
-				audioBytes = AudioCue.fromBufferToAudioBytes(
-								audioBytes, readBuffer);
-				sdl.write(audioBytes, 0, sdlByteBufferSize);
+				loadTrackCache();
+				// reuse the buffer, no allocation on the audio 
+				// thread, and only clear it if last one sounded
+				if (!buffersSilent)
+				{
+					Arrays.fill(readBuffer, 0);
+				}
+				boolean sounding = fillBufferFromTracks(readBuffer, 
+						bufferSize);
+				if (sounding || !buffersSilent)
+				{
+					audioBytes = AudioCue.fromBufferToAudioBytes(
+							audioBytes, readBuffer);
+				}
+				buffersSilent = !sounding;
+				clock.advance(bufferSize);
+				sink.write(audioBytes, 0, sdlByteBufferSize);
 			}
+			rendering = false;
 
-			sdl.drain();
-			sdl.close();
-			sdl = null;
+			clock.setSink(null);
+			sink.drain();
+			sink.close();
+			sink = null;
 		}
 	}
 }
@@ -47,4 +47,46 @@ abstract public interface AudioMixerTrack {
 	 * @throws IOException - if an I/O exception occurs
 	 */
 	float[] readTrack() throws IOException;	
+	
+	/**
+	 * Renders one buffer of normalized audio data frames of the
+	 * track by adding it into a buffer supplied by the 
+	 * <b>AudioMixer</b>, starting at the given frame. The buffer
+	 * holds interleaved stereo frames. Adding directly into the 
+	 * mix avoids writing and then re-reading a separate buffer 
+	 * for every track.
+	 * <p>
+	 * The default implementation calls <code>readTrack()</code>
+	 * and adds the first <code>frames</code> frames of the result,
+	 * so that existing tracks work unchanged. Tracks that can 
+	 * render in place should override it.
+	 * 
+	 * @param mix - the buffer of interleaved stereo frames to
+	 * be added to
+	 * @param offset - the first frame of <code>mix</code> to be 
+	 * written
+	 * @param frames - the number of frames to be rendered
+	 * @throws IOException - if an I/O exception occurs
+	 */
+	default void mixTrack(float[] mix, int offset, int frames) 
+			throws IOException
+	{
+		AudioKernels.add(readTrack(), 0, mix, offset * 2, frames * 2);
+	}
+	
+	/**
+	 * This function is consulted by the <b>AudioMixer</b> before
+	 * each buffer. A track that returns <code>true</code> is
+	 * promising that <code>readTrack()</code> would return only
+	 * zeros, and the mixer skips both the read and the summing 
+	 * of the track for that buffer. The default implementation
+	 * returns <code>false</code>, so the track is always read.
+	 * 
+	 * @return - <code>true</code> if the next buffer of the 
+	 * track is silent
+	 */
+	default boolean isSilent()
+	{
+		return false;
+	}
 }
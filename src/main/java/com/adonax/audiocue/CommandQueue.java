@@ -0,0 +1,162 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@code CommandQueue} carries instance control commands from 
+ * any number of controlling threads to the single audio thread 
+ * that renders an {@code AudioCue}. The commands are applied by 
+ * the audio thread at the start of a buffer, so that a parameter 
+ * never changes partway through the rendering of a buffer, and 
+ * the fields of a cursor are only ever written by one thread at 
+ * a time.
+ * <p>
+ * The queue is a bounded ring of preallocated slots. A command 
+ * is an operation code, an instance hook, a {@code double} value
+ * and an {@code int} count of frames, held in parallel primitive 
+ * arrays, so that neither side allocates. Producers claim a slot 
+ * by incrementing the tail with a compare-and-set, write the 
+ * fields, then publish the slot by advancing its sequence 
+ * number. The consumer reads published slots in order and hands 
+ * them back by advancing their sequence numbers a full lap. 
+ * Neither side takes a lock.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+final class CommandQueue 
+{
+	/*
+	 * Receives the commands drained from the queue.
+	 */
+	interface Handler
+	{
+		void apply(int op, int hook, double value, int frames);
+	}
+	
+	private final int capacity;
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final int[] ops;
+	private final int[] hooks;
+	private final double[] values;
+	private final int[] frameCounts;
+	
+	private final AtomicLong tail = new AtomicLong();
+	// consumer only
+	private long head;
+	
+	/*
+	 * The capacity is rounded up to a power of two.
+	 */
+	CommandQueue(int capacity)
+	{
+		this.capacity = Integer.highestOneBit(
+				Math.max(2, capacity) - 1) << 1;
+		mask = this.capacity - 1;
+		
+		sequences = new AtomicLongArray(this.capacity);
+		ops = new int[this.capacity];
+		hooks = new int[this.capacity];
+		values = new double[this.capacity];
+		frameCounts = new int[this.capacity];
+		
+		for (int i = 0; i < this.capacity; i++)
+		{
+			sequences.set(i, i);
+		}
+	}
+	
+	/*
+	 * Any thread. Returns false, and enqueues nothing, if the 
+	 * queue is full.
+	 */
+	boolean offer(int op, int hook, double value, int frames)
+	{
+		long pos;
+		int slot;
+		while (true)
+		{
+			pos = tail.get();
+			slot = (int)pos & mask;
+			long seq = sequences.get(slot);
+			if (seq == pos)
+			{
+				if (tail.compareAndSet(pos, pos + 1)) break;
+			}
+			// slot not yet handed back by the consumer
+			else if (seq < pos) return false;
+		}
+		
+		ops[slot] = op;
+		hooks[slot] = hook;
+		values[slot] = value;
+		frameCounts[slot] = frames;
+		sequences.set(slot, pos + 1);
+		
+		return true;
+	}
+	
+	/*
+	 * Consumer only. Applies all published commands, in order.
+	 */
+	void drain(Handler handler)
+	{
+		while (true)
+		{
+			final int slot = (int)head & mask;
+			if (sequences.get(slot) != head + 1) return;
+			
+			handler.apply(ops[slot], hooks[slot], values[slot], 
+					frameCounts[slot]);
+			sequences.set(slot, head + capacity);
+			head++;
+		}
+	}
+	
+	/*
+	 * Consumer only. True if there is nothing to drain.
+	 */
+	boolean isEmpty()
+	{
+		return sequences.get((int)head & mask) != head + 1;
+	}
+}
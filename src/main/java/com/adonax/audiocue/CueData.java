@@ -0,0 +1,279 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@code CueData} holds the audio data of an {@code AudioCue}, in
+ * one of the forms listed by {@code SampleStorage}, as stereo 
+ * frames. The rendering code reads a {@code FLOAT} cue's array 
+ * directly; the data in any other form is read through 
+ * {@code read}, which converts the frames a segment needs into
+ * a work buffer of normalized {@code float} values. Frames are 
+ * numbered with {@code long} values, as {@code MAPPED} data is 
+ * not limited to the length of an array.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+abstract class CueData 
+{
+	/*
+	 * Number of stereo frames held.
+	 */
+	abstract long frames();
+	
+	/*
+	 * Audio thread code. 
+	 * Converts count frames, starting at frame first, to 
+	 * normalized stereo values in dest, starting at 0. The caller
+	 * guarantees that the frames lie within the data.
+	 */
+	abstract void read(long first, int count, float[] dest);
+	
+	/*
+	 * Returns the array of normalized stereo values, for data 
+	 * held in that form, or else null.
+	 */
+	float[] floats() { return null; }
+	
+	static CueData of(float[] cue, SampleStorage storage)
+	{
+		switch (storage)
+		{
+		case PCM16:
+			short[] pcm = new short[cue.length];
+			AudioKernels.toPcm16(cue, pcm, cue.length);
+			return new Pcm16(pcm);
+		case MAPPED:
+			try
+			{
+				int[] written = new int[1];
+				return Mapped.write(buffer -> 
+				{
+					int n = Math.min(buffer.length, 
+							cue.length - written[0]);
+					System.arraycopy(cue, written[0], buffer, 0, n);
+					written[0] += n;
+					return n / 2;
+				});
+			}
+			catch (IOException e)
+			{
+				throw new UncheckedIOException(e);
+			}
+		default:
+			return new Floats(cue);
+		}
+	}
+	
+	static final class Floats extends CueData
+	{
+		private final float[] cue;
+		
+		Floats(float[] cue)
+		{
+			this.cue = cue;
+		}
+		
+		@Override
+		long frames() { return cue.length / 2; }
+		
+		@Override
+		void read(long first, int count, float[] dest)
+		{
+			System.arraycopy(cue, (int)first * 2, dest, 0, count * 2);
+		}
+		
+		@Override
+		float[] floats() { return cue; }
+	}
+	
+	static final class Pcm16 extends CueData
+	{
+		private final short[] pcm;
+		
+		Pcm16(short[] pcm)
+		{
+			this.pcm = pcm;
+		}
+		
+		@Override
+		long frames() { return pcm.length / 2; }
+		
+		@Override
+		void read(long first, int count, float[] dest)
+		{
+			AudioKernels.fromPcm16(pcm, (int)first * 2, dest, 0, count * 2);
+		}
+	}
+	
+	/*
+	 * 16-bit little-endian stereo frames in a memory-mapped file,
+	 * mapped in windows of WINDOW_FRAMES, as a single mapping 
+	 * can not exceed Integer.MAX_VALUE bytes. The pages are read 
+	 * in by the operating system as they are first touched, and
+	 * are released by it under memory pressure; none of the data
+	 * is on the Java heap. The mapping is released when the 
+	 * buffers are garbage collected.
+	 */
+	static final class Mapped extends CueData
+	{
+		// a gigabyte of frames per mapping
+		private static final int WINDOW_FRAMES = 1 << 28;
+		// frames converted per write to a temporary file
+		private static final int WRITE_FRAMES = 1 << 16;
+		
+		private final ShortBuffer[] windows;
+		private final long frames;
+		
+		/*
+		 * Maps frames frames of the file, starting at the byte 
+		 * position offset. The channel may be closed afterwards.
+		 */
+		Mapped(FileChannel channel, long offset, long frames) 
+				throws IOException
+		{
+			this.frames = frames;
+			windows = new ShortBuffer[(int)((frames + WINDOW_FRAMES - 1) 
+					/ WINDOW_FRAMES)];
+			for (int i = 0; i < windows.length; i++)
+			{
+				long first = (long)i * WINDOW_FRAMES;
+				long size = Math.min(WINDOW_FRAMES, frames - first) * 4;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, 
+						offset + first * 4, size)
+						.order(ByteOrder.LITTLE_ENDIAN).asShortBuffer();
+			}
+		}
+		
+		@Override
+		long frames() { return frames; }
+		
+		@Override
+		void read(long first, int count, float[] dest)
+		{
+			int o = 0;
+			while (count > 0)
+			{
+				final ShortBuffer window = 
+						windows[(int)(first / WINDOW_FRAMES)];
+				final int start = (int)(first % WINDOW_FRAMES);
+				final int n = Math.min(count, WINDOW_FRAMES - start);
+				for (int i = start * 2, end = (start + n) * 2; 
+						i < end; i++)
+				{
+					dest[o++] = window.get(i) * (1f / 32767);
+				}
+				first += n;
+				count -= n;
+			}
+		}
+		
+		/*
+		 * Supplies normalized stereo frames to be written.
+		 */
+		interface Source
+		{
+			/*
+			 * Fills the start of the buffer, returning the number
+			 * of frames supplied, or 0 at the end of the data.
+			 */
+			int next(float[] buffer) throws IOException;
+		}
+		
+		/*
+		 * Writes the frames of the source, as 16-bit PCM, to a 
+		 * temporary file in the directory named by the system 
+		 * property "audiocue.mapdir", by default the directory
+		 * for temporary files, and maps it. Where the operating
+		 * system allows, the file is deleted once mapped, so 
+		 * that its space is freed with the mapping.
+		 */
+		static Mapped write(Source source) throws IOException
+		{
+			return write(WRITE_FRAMES, source);
+		}
+		
+		/*
+		 * Writes the frames of the source as write(Source) does,
+		 * offering it a buffer of bufferFrames frames at a time.
+		 */
+		static Mapped write(int bufferFrames, Source source) 
+				throws IOException
+		{
+			String dir = System.getProperty("audiocue.mapdir");
+			File file = File.createTempFile("audiocue", ".pcm", 
+					dir == null ? null : new File(dir));
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+			{
+				FileChannel channel = raf.getChannel();
+				float[] buffer = new float[bufferFrames * 2];
+				short[] pcm = new short[bufferFrames * 2];
+				ByteBuffer out = ByteBuffer.allocate(bufferFrames * 4)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				long frames = 0;
+				int n;
+				while ((n = source.next(buffer)) > 0)
+				{
+					// rounded, as for PCM16, so 16-bit sources are kept
+					AudioKernels.toPcm16(buffer, pcm, n * 2);
+					out.clear();
+					out.asShortBuffer().put(pcm, 0, n * 2);
+					out.limit(n * 4);
+					while (out.hasRemaining()) channel.write(out);
+					frames += n;
+				}
+				return new Mapped(channel, 0, frames);
+			}
+			finally
+			{
+				// where the mapping keeps it open, left until exit
+				if (!file.delete()) file.deleteOnExit();
+			}
+		}
+	}
+}
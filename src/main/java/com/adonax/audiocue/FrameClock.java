@@ -0,0 +1,114 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+/**
+ * {@code FrameClock} counts the frames rendered by an audio 
+ * thread, and serves as a common time base for scheduling
+ * events to the exact sample frame. The count starts at 0 and
+ * only ever increases. While a buffer is being rendered, the 
+ * clock holds the number of the buffer's first frame, and it 
+ * advances by the length of the buffer once the buffer is 
+ * complete.
+ * <p>
+ * Each {@code AudioMixer} has a clock, shared by all its 
+ * tracks, and each {@code AudioCue} that is opened with its own
+ * output line has a clock of its own. 
+ * <p>
+ * While an {@code OutputSink} is attached, the clock can also 
+ * estimate when a rendered frame will be heard, by comparing 
+ * the frame with the number of frames the sink reports having 
+ * played.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+final class FrameClock 
+{
+	// written by the audio thread only
+	private volatile long frame;
+	// the sink playing the frames, and the frame of the clock
+	// that is the sink's first frame
+	private volatile OutputSink sink;
+	private volatile long sinkOrigin;
+	
+	private static final double NANOS_PER_FRAME = 
+			1_000_000_000.0 / AudioCue.audioFormat.getFrameRate();
+	
+	/*
+	 * Any thread. The number of frames rendered so far.
+	 */
+	long get()
+	{
+		return frame;
+	}
+	
+	/*
+	 * AudioThread code.
+	 */
+	void advance(int frames)
+	{
+		frame += frames;
+	}
+	
+	/*
+	 * AudioThread code. Attaches the sink to which the rendered 
+	 * frames are written, from the next frame on, or detaches it
+	 * if null.
+	 */
+	void setSink(OutputSink sink)
+	{
+		sinkOrigin = frame;
+		this.sink = sink;
+	}
+	
+	/*
+	 * Any thread. Estimates the System.nanoTime() at which the 
+	 * given frame of the clock is heard. Without a sink, the 
+	 * frames are taken to be heard as they are rendered.
+	 */
+	long presentationTime(long renderFrame)
+	{
+		final long now = System.nanoTime();
+		final OutputSink out = sink;
+		final long heard = out == null ? frame 
+				: sinkOrigin + out.getLongFramePosition();
+		
+		return now + (long)((renderFrame - heard) * NANOS_PER_FRAME);
+	}
+}
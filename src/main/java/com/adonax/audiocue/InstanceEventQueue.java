@@ -0,0 +1,345 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import src.main.java.com.adonax.audiocue.AudioCueInstanceEvent.Type;
+
+/**
+ * {@code InstanceEventQueue} carries the instance events of an 
+ * {@code AudioCue} away from the threads that raise them, in 
+ * particular the audio thread, to the listeners. An event is 
+ * recorded as primitive values in a preallocated slot of a 
+ * bounded ring, so that raising an event neither allocates nor 
+ * locks, and never waits on a listener. If the ring is full, 
+ * the event is dropped and counted.
+ * <p>
+ * The rings of all {@code AudioCue}s are served by a single 
+ * daemon thread. A ring with new events places itself on a 
+ * lock-free list of rings to be served and wakes the thread, 
+ * which builds the {@code AudioCueInstanceEvent}s and passes 
+ * them to the listeners, in the order the events were raised. 
+ * The estimate of when the event is heard is made as the event 
+ * is built, so the audio thread does not query the line. 
+ * If an {@code Executor} has been assigned, the delivery to the
+ * listeners is handed to it instead, for example to run the 
+ * listeners on the thread of a GUI or game loop.
+ * <p>
+ * The events are not pooled. The fields of an 
+ * {@code AudioCueInstanceEvent} are public and final, and a 
+ * listener may keep the event, so each delivered event is a 
+ * new object, along with a {@code Runnable} for each event 
+ * handed to an {@code Executor}. This allocation has been moved 
+ * from the thread that raises the event to the dispatch thread,
+ * not removed; the audio thread itself allocates nothing.
+ * <p>
+ * Each listener subscribes to a set of event types, held as a 
+ * bit mask. An event of a type to which no listener subscribes
+ * is not recorded at all.
+ * <p>
+ * The ring is the same bounded multi-producer, single-consumer 
+ * design as the {@code CommandQueue}, with the dispatch thread 
+ * as the consumer.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+final class InstanceEventQueue 
+{
+	private static final Type[] TYPES = Type.values();
+	
+	private final AudioCue source;
+	private final CopyOnWriteArrayList<Subscription> subscriptions = 
+			new CopyOnWriteArrayList<>();
+	// union of the masks of all subscriptions
+	private volatile int typeMask;
+	
+	private final int capacity;
+	private final int mask;
+	private final AtomicLongArray sequences;
+	private final int[] types;
+	private final int[] hooks;
+	private final double[] frames;
+	private final long[] times;
+	private final long[] renderFrames;
+	
+	private final AtomicLong tail = new AtomicLong();
+	// dispatch thread only
+	private long head;
+	private final AtomicLong dropped = new AtomicLong();
+	
+	// membership of the list of rings awaiting dispatch
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private InstanceEventQueue next;
+	
+	volatile Executor executor;
+	
+	/*
+	 * The capacity is rounded up to a power of two.
+	 */
+	InstanceEventQueue(AudioCue source, int capacity)
+	{
+		this.source = source;
+		this.capacity = Integer.highestOneBit(
+				Math.max(2, capacity) - 1) << 1;
+		mask = this.capacity - 1;
+		
+		sequences = new AtomicLongArray(this.capacity);
+		types = new int[this.capacity];
+		hooks = new int[this.capacity];
+		frames = new double[this.capacity];
+		times = new long[this.capacity];
+		renderFrames = new long[this.capacity];
+		
+		for (int i = 0; i < this.capacity; i++)
+		{
+			sequences.set(i, i);
+		}
+	}
+	
+	/*
+	 * A listener and the event types it receives.
+	 */
+	private static final class Subscription
+	{
+		final AudioCueListener listener;
+		final int mask;
+		
+		Subscription(AudioCueListener listener, int mask)
+		{
+			this.listener = listener;
+			this.mask = mask;
+		}
+	}
+	
+	private static int maskOf(Set<Type> types)
+	{
+		int mask = 0;
+		for (Type type : types) mask |= 1 << type.ordinal();
+		return mask;
+	}
+	
+	void subscribe(AudioCueListener listener, Set<Type> types)
+	{
+		subscriptions.add(new Subscription(listener, maskOf(types)));
+		updateTypeMask();
+	}
+	
+	/*
+	 * Removes the first subscription of the listener.
+	 */
+	void unsubscribe(AudioCueListener listener)
+	{
+		for (Subscription sub : subscriptions)
+		{
+			if (sub.listener == listener)
+			{
+				subscriptions.remove(sub);
+				break;
+			}
+		}
+		updateTypeMask();
+	}
+	
+	private synchronized void updateTypeMask()
+	{
+		int mask = 0;
+		for (Subscription sub : subscriptions) mask |= sub.mask;
+		typeMask = mask;
+	}
+	
+	/*
+	 * Any thread. True if some listener receives the type.
+	 */
+	boolean wants(Type type)
+	{
+		return (typeMask & 1 << type.ordinal()) != 0;
+	}
+	
+	/*
+	 * Any thread. Records the event and schedules its dispatch,
+	 * or counts it as dropped if the ring is full.
+	 */
+	void offer(Type type, int hook, double frame, long renderFrame)
+	{
+		long pos;
+		int slot;
+		while (true)
+		{
+			pos = tail.get();
+			slot = (int)pos & mask;
+			long seq = sequences.get(slot);
+			if (seq == pos)
+			{
+				if (tail.compareAndSet(pos, pos + 1)) break;
+			}
+			else if (seq < pos) 
+			{
+				dropped.incrementAndGet();
+				return;
+			}
+		}
+		
+		types[slot] = type.ordinal();
+		hooks[slot] = hook;
+		frames[slot] = frame;
+		times[slot] = System.currentTimeMillis();
+		renderFrames[slot] = renderFrame;
+		sequences.set(slot, pos + 1);
+		
+		schedule(this);
+	}
+	
+	/*
+	 * Any thread. The number of events lost to a full ring.
+	 */
+	long getDropped()
+	{
+		return dropped.get();
+	}
+	
+	/*
+	 * Dispatch thread. Builds and delivers all published events.
+	 * Allocates the event, and the task handed to an executor.
+	 */
+	private void dispatch()
+	{
+		while (true)
+		{
+			final int slot = (int)head & mask;
+			if (sequences.get(slot) != head + 1) return;
+			
+			AudioCueInstanceEvent event = new AudioCueInstanceEvent(
+					TYPES[types[slot]], source, hooks[slot], 
+					frames[slot], times[slot], renderFrames[slot],
+					source.getClock().presentationTime(
+							renderFrames[slot]));
+			sequences.set(slot, head + capacity);
+			head++;
+			
+			Executor ex = executor;
+			if (ex == null) deliver(event);
+			else ex.execute(() -> deliver(event));
+		}
+	}
+	
+	private void deliver(AudioCueInstanceEvent event)
+	{
+		final int bit = 1 << event.type.ordinal();
+		for (Subscription sub : subscriptions)
+		{
+			if ((sub.mask & bit) == 0) continue;
+			try
+			{
+				sub.listener.instanceEventOccurred(event);
+			}
+			catch (RuntimeException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	// rings with events awaiting dispatch, linked through next
+	private static final AtomicReference<InstanceEventQueue> pending = 
+			new AtomicReference<>();
+	
+	/*
+	 * Any thread. Pushes the ring onto the pending list, unless 
+	 * it is already there, and wakes the dispatch thread.
+	 */
+	private static void schedule(InstanceEventQueue queue)
+	{
+		if (!queue.scheduled.compareAndSet(false, true)) return;
+		
+		InstanceEventQueue head;
+		do
+		{
+			head = pending.get();
+			queue.next = head;
+		}
+		while (!pending.compareAndSet(head, queue));
+		
+		LockSupport.unpark(dispatcher);
+	}
+	
+	// started when the first AudioCue is created
+	private static final Thread dispatcher = startDispatcher();
+	
+	private static Thread startDispatcher()
+	{
+		Thread t = new Thread(InstanceEventQueue::runDispatcher, 
+				"AudioCue event dispatcher");
+		t.setDaemon(true);
+		t.start();
+		return t;
+	}
+	
+	private static void runDispatcher()
+	{
+		while (true)
+		{
+			InstanceEventQueue queue = pending.getAndSet(null);
+			if (queue == null)
+			{
+				LockSupport.park();
+				continue;
+			}
+			
+			// the list is last in, first out, but each ring 
+			// keeps its own events in order
+			while (queue != null)
+			{
+				InstanceEventQueue following = queue.next;
+				queue.next = null;
+				// events arriving from now on reschedule
+				queue.scheduled.set(false);
+				queue.dispatch();
+				queue = following;
+			}
+		}
+	}
+}
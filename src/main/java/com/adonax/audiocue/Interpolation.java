@@ -0,0 +1,294 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+/**
+ * The {@code enum Interpolation} lists the methods available for 
+ * reading the audio data of an {@code AudioCue} at fractional 
+ * sample frame positions, which occur whenever an instance is 
+ * played at a speed other than 1. The methods trade cpu cost 
+ * against fidelity:
+ * <ul>
+ * <li>{@code LINEAR} is the least expensive, and is well suited
+ * for short effects played in large numbers. It dulls high 
+ * frequencies somewhat and aliases when the speed is far from 
+ * 1.</li>
+ * <li>{@code HERMITE} uses a 4-point cubic Hermite spline. It 
+ * costs roughly twice as much as {@code LINEAR} and preserves 
+ * high frequencies better.</li>
+ * <li>{@code SINC} uses a Kaiser-windowed sinc kernel held in a 
+ * precomputed polyphase table, 16 taps wide at speeds up to 1. 
+ * At faster speeds the kernel is widened in proportion to the 
+ * speed, so that frequencies that would alias are filtered out.
+ * This is by far the most expensive method, and is intended 
+ * for music and other material where quality matters more 
+ * than voice count.</li></ul>
+ * <p>
+ * The {@code supportpack.RenderBenchmark} program measures the
+ * cost per voice of each method on the host machine.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ * @see AudioCue#setInterpolation(Interpolation)
+ */
+public enum Interpolation 
+{
+	/**
+	 * Linear interpolation between the two frames that 
+	 * surround the read position.
+	 */
+	LINEAR
+	{
+		@Override
+		int before(float topSpeed) { return 0; }
+		
+		@Override
+		int after(float topSpeed) { return 1; }
+		
+		@Override
+		double interpolate(float[] src, double idx, float speed, 
+				float speedIncr, float[] dest, int frames)
+		{
+			for (int i = 0, n = frames * 2; i < n; i += 2)
+			{
+				final int intIndex = (int)idx;
+				final int flatIndex = intIndex * 2;
+				final float fraction = (float)(idx - intIndex);
+				
+				dest[i] = src[flatIndex] + fraction 
+						* (src[flatIndex + 2] - src[flatIndex]);
+				dest[i + 1] = src[flatIndex + 1] + fraction 
+						* (src[flatIndex + 3] - src[flatIndex + 1]);
+				
+				idx += speed;
+				speed += speedIncr;
+			}
+			return idx;
+		}
+	},
+	/**
+	 * Cubic Hermite (Catmull-Rom) interpolation over the four 
+	 * frames that surround the read position.
+	 */
+	HERMITE
+	{
+		@Override
+		int before(float topSpeed) { return 1; }
+		
+		@Override
+		int after(float topSpeed) { return 2; }
+		
+		@Override
+		double interpolate(float[] src, double idx, float speed, 
+				float speedIncr, float[] dest, int frames)
+		{
+			for (int i = 0, n = frames * 2; i < n; i += 2)
+			{
+				final int intIndex = (int)idx;
+				final int flatIndex = intIndex * 2;
+				final float fraction = (float)(idx - intIndex);
+				
+				dest[i] = hermite(src[flatIndex - 2], src[flatIndex], 
+						src[flatIndex + 2], src[flatIndex + 4], fraction);
+				dest[i + 1] = hermite(src[flatIndex - 1], 
+						src[flatIndex + 1], src[flatIndex + 3], 
+						src[flatIndex + 5], fraction);
+				
+				idx += speed;
+				speed += speedIncr;
+			}
+			return idx;
+		}
+	},
+	/**
+	 * Band-limited interpolation with a windowed sinc kernel,
+	 * read from a precomputed polyphase table.
+	 */
+	SINC
+	{
+		@Override
+		int before(float topSpeed) 
+		{ 
+			return (int)Math.ceil(ZERO_CROSSINGS 
+					* Math.max(1, topSpeed)) + 1; 
+		}
+		
+		@Override
+		int after(float topSpeed) 
+		{ 
+			return (int)Math.ceil(ZERO_CROSSINGS 
+					* Math.max(1, topSpeed)) + 1; 
+		}
+		
+		@Override
+		double interpolate(float[] src, double idx, float speed, 
+				float speedIncr, float[] dest, int frames)
+		{
+			for (int i = 0, n = frames * 2; i < n; i += 2)
+			{
+				final int intIndex = (int)idx;
+				final float fraction = (float)(idx - intIndex);
+				
+				// widen the kernel when reading faster than 1
+				final float scale = speed > 1 ? 1 / speed : 1;
+				final float step = scale * SAMPLES_PER_CROSSING;
+				
+				float left = 0;
+				float right = 0;
+				
+				// left wing, frames at or before the position
+				float t = fraction * step;
+				for (int k = intIndex * 2; t < TABLE_END; 
+						k -= 2, t += step)
+				{
+					final int ti = (int)t;
+					final float h = SINC_TABLE[ti] 
+							+ (t - ti) * SINC_DELTA[ti];
+					left += src[k] * h;
+					right += src[k + 1] * h;
+				}
+				
+				// right wing, frames after the position
+				t = (1 - fraction) * step;
+				for (int k = intIndex * 2 + 2; t < TABLE_END; 
+						k += 2, t += step)
+				{
+					final int ti = (int)t;
+					final float h = SINC_TABLE[ti] 
+							+ (t - ti) * SINC_DELTA[ti];
+					left += src[k] * h;
+					right += src[k + 1] * h;
+				}
+				
+				dest[i] = left * scale;
+				dest[i + 1] = right * scale;
+				
+				idx += speed;
+				speed += speedIncr;
+			}
+			return idx;
+		}
+	};
+	
+	/*
+	 * Number of frames the method reads before the integer part 
+	 * of the read position, when the speed does not exceed 
+	 * topSpeed.
+	 */
+	abstract int before(float topSpeed);
+	
+	/*
+	 * Number of frames the method reads after the integer part 
+	 * of the read position, when the speed does not exceed 
+	 * topSpeed.
+	 */
+	abstract int after(float topSpeed);
+	
+	/*
+	 * Audio thread code. 
+	 * Reads frames stereo frames from src, starting at the 
+	 * (fractional) frame position idx and advancing by speed, 
+	 * itself advancing by speedIncr per frame. The frames are 
+	 * written to dest starting at 0. The caller guarantees that
+	 * all frames read, as given by before() and after(), lie 
+	 * within src. Returns the position following the last frame
+	 * read.
+	 */
+	abstract double interpolate(float[] src, double idx, float speed, 
+			float speedIncr, float[] dest, int frames);
+	
+	private static float hermite(float xm1, float x0, float x1, 
+			float x2, float t)
+	{
+		final float c1 = 0.5f * (x1 - xm1);
+		final float c2 = xm1 - 2.5f * x0 + 2 * x1 - 0.5f * x2;
+		final float c3 = 0.5f * (x2 - xm1) + 1.5f * (x0 - x1);
+		
+		return ((c3 * t + c2) * t + c1) * t + x0;
+	}
+	
+	/*
+	 * The sinc table holds one wing of the symmetric kernel, 
+	 * sampled SAMPLES_PER_CROSSING times per zero crossing. The
+	 * delta table holds the difference to the next entry, for
+	 * interpolating between the table's phases.
+	 */
+	private static final int ZERO_CROSSINGS = 8;
+	private static final int SAMPLES_PER_CROSSING = 128;
+	private static final int TABLE_END = 
+			ZERO_CROSSINGS * SAMPLES_PER_CROSSING;
+	private static final double ROLLOFF = 0.94;
+	private static final double KAISER_BETA = 8;
+	
+	private static final float[] SINC_TABLE = new float[TABLE_END + 1];
+	private static final float[] SINC_DELTA = new float[TABLE_END];
+	
+	static
+	{
+		final double i0Beta = besselI0(KAISER_BETA);
+		for (int i = 0; i <= TABLE_END; i++)
+		{
+			double x = i / (double)SAMPLES_PER_CROSSING;
+			double y = Math.PI * ROLLOFF * x;
+			double sinc = (i == 0) ? 1 : Math.sin(y) / y;
+			double r = x / ZERO_CROSSINGS;
+			double window = besselI0(KAISER_BETA 
+					* Math.sqrt(Math.max(0, 1 - r * r))) / i0Beta;
+			
+			SINC_TABLE[i] = (float)(ROLLOFF * sinc * window);
+		}
+		for (int i = 0; i < TABLE_END; i++)
+		{
+			SINC_DELTA[i] = SINC_TABLE[i + 1] - SINC_TABLE[i];
+		}
+	}
+	
+	// zeroth order modified Bessel function of the first kind
+	private static double besselI0(double x)
+	{
+		double sum = 1;
+		double term = 1;
+		for (int k = 1; k < 50; k++)
+		{
+			term *= (x / (2 * k)) * (x / (2 * k));
+			sum += term;
+			if (term < sum * 1e-12) break;
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * {@code NullSink} is an {@code OutputSink} that discards the 
+ * audio data, but accepts it at the pace of a real output line:
+ * a {@code write} blocks while more than a buffer's worth of 
+ * frames is ahead of the time elapsed since the first write. 
+ * This allows an {@code AudioCue} or {@code AudioMixer} to run 
+ * in real time, with realistic timing of events, where there 
+ * is no sound device, such as on a headless server.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public class NullSink implements OutputSink 
+{
+	private double nanosPerFrame;
+	private int frameSize;
+	private long bufferFrames;
+	
+	private volatile long startNanos;
+	private volatile long framesWritten;
+
+	@Override
+	public void open(AudioFormat format, int bufferBytes) 
+	{
+		frameSize = format.getFrameSize();
+		nanosPerFrame = 1_000_000_000.0 / format.getFrameRate();
+		bufferFrames = bufferBytes / frameSize;
+		framesWritten = 0;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) 
+	{
+		if (framesWritten == 0) startNanos = System.nanoTime();
+		framesWritten += length / frameSize;
+		
+		// wait for all but a buffer's worth to have been "played"
+		final long due = startNanos + (long)(
+				(framesWritten - bufferFrames) * nanosPerFrame);
+		long wait;
+		while ((wait = due - System.nanoTime()) > 0)
+		{
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	@Override
+	public long getLongFramePosition() 
+	{
+		final long written = framesWritten;
+		if (written == 0) return 0;
+		
+		return Math.min(written, (long)(
+				(System.nanoTime() - startNanos) / nanosPerFrame));
+	}
+
+	@Override
+	public void drain() 
+	{
+		final long due = startNanos 
+				+ (long)(framesWritten * nanosPerFrame);
+		long wait;
+		while ((wait = due - System.nanoTime()) > 0)
+		{
+			LockSupport.parkNanos(wait);
+		}
+	}
+
+	@Override
+	public void close() {}
+}
@@ -0,0 +1,158 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@code OfflineRender} holds the loops shared by the offline 
+ * {@code render} methods of {@code AudioCue} and 
+ * {@code AudioMixer}, which run the same rendering code as the
+ * audio thread, but as fast as the cpu allows, and deliver the
+ * result to an array, a {@code ByteBuffer} or a wav file rather
+ * than to an output line.
+ * <p>
+ * The rendering is done a block at a time into a work buffer, 
+ * and each block advances the clock of the renderer. Thus 
+ * instances scheduled to start on a given frame start on that 
+ * frame, and commands given between two calls to {@code render}
+ * take effect on the first frame of the second call. The work 
+ * buffers are allocated once, by the constructor, so that 
+ * rendering to an array allocates nothing, and a block-by-block
+ * offline render can stand in for the audio thread in tests of
+ * allocation and timing.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+final class OfflineRender 
+{
+	/*
+	 * Renders a block of stereo frames into the start of a 
+	 * zero-filled buffer, and advances the clock by the frames.
+	 */
+	interface BlockRenderer
+	{
+		void renderBlock(float[] buffer, int frames);
+	}
+	
+	private final BlockRenderer renderer;
+	private final int blockFrames;
+	private final float[] buffer;
+	private final byte[] bytes;
+	
+	OfflineRender(BlockRenderer renderer, int blockFrames)
+	{
+		this.renderer = renderer;
+		this.blockFrames = blockFrames;
+		buffer = new float[blockFrames * 2];
+		bytes = new byte[blockFrames * 4];
+	}
+	
+	void toFloats(float[] out, int offset, int frames)
+	{
+		while (frames > 0)
+		{
+			final int n = Math.min(frames, blockFrames);
+			renderer.renderBlock(buffer, n);
+			System.arraycopy(buffer, 0, out, offset * 2, n * 2);
+			offset += n;
+			frames -= n;
+		}
+	}
+	
+	/*
+	 * Writes 16-bit little-endian PCM, regardless of the byte 
+	 * order of the ByteBuffer.
+	 */
+	void toBytes(ByteBuffer out, int frames)
+	{
+		while (frames > 0)
+		{
+			final int n = Math.min(frames, blockFrames);
+			renderer.renderBlock(buffer, n);
+			AudioKernels.toPcm16LE(buffer, bytes, n * 2);
+			out.put(bytes, 0, n * 4);
+			frames -= n;
+		}
+	}
+	
+	/*
+	 * The file is closed, with the lengths in its header filled 
+	 * in, however the rendering ends. If it ends in an error, the
+	 * incomplete file is deleted.
+	 */
+	void toWav(File file, long frames) throws IOException
+	{
+		final WavFileSink sink = new WavFileSink(file);
+		boolean complete = false;
+		try
+		{
+			sink.open(AudioCue.audioFormat, bytes.length);
+			while (frames > 0)
+			{
+				final int n = (int)Math.min(frames, blockFrames);
+				renderer.renderBlock(buffer, n);
+				AudioKernels.toPcm16LE(buffer, bytes, n * 2);
+				sink.write(bytes, 0, n * 4);
+				frames -= n;
+			}
+			complete = true;
+		}
+		catch (UncheckedIOException e)
+		{
+			throw e.getCause();
+		}
+		finally
+		{
+			try
+			{
+				sink.close();
+			}
+			catch (UncheckedIOException e)
+			{
+				// an error already in flight takes precedence
+				if (complete) throw e.getCause();
+			}
+			if (!complete) file.delete();
+		}
+	}
+}
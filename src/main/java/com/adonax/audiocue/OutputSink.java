@@ -0,0 +1,118 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+
+/**
+ * An {@code OutputSink} is the destination of the audio data
+ * rendered by an {@code AudioCue} or an {@code AudioMixer}. The
+ * default is a {@code SourceDataLineSink}, which plays the data 
+ * through a {@code javax.sound.sampled.SourceDataLine}. Other 
+ * implementations allow the audio to be rendered without a 
+ * sound device, for example on a headless server, in a test, or
+ * to a file:
+ * <ul>
+ * <li>{@code WavFileSink} - writes the data to a wav file</li>
+ * <li>{@code RingBufferSink} - holds the data in memory, to be 
+ * read by another thread</li>
+ * <li>{@code NullSink} - discards the data, while consuming it
+ * at the pace of a real line</li></ul>
+ * <p>
+ * The methods follow those of {@code SourceDataLine}. The 
+ * {@code open} method is called from the thread that opens the
+ * {@code AudioCue} or starts the {@code AudioMixer}, and the 
+ * others from the audio thread, except for 
+ * {@code getLongFramePosition}, which can be called from any 
+ * thread. The {@code write} method may block, and the pace at 
+ * which the sink accepts data is the pace at which the audio 
+ * thread renders. A sink that never blocks lets the audio 
+ * thread render as fast as the cpu allows.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public interface OutputSink 
+{
+	/**
+	 * Prepares the sink to receive data in the given format, 
+	 * with the given size of the buffer written by each call
+	 * to {@code write}.
+	 * 
+	 * @param format the {@code AudioFormat} of the data
+	 * @param bufferBytes an {@code int} specifying the number 
+	 * of bytes written per buffer
+	 * @throws LineUnavailableException if the sink cannot be 
+	 * opened
+	 */
+	void open(AudioFormat format, int bufferBytes) 
+			throws LineUnavailableException;
+	
+	/**
+	 * Writes audio data to the sink, blocking if the sink is
+	 * not ready to accept it.
+	 * 
+	 * @param bytes a {@code byte} array holding the data
+	 * @param offset an {@code int} specifying the first byte
+	 * to be written
+	 * @param length an {@code int} specifying the number of 
+	 * bytes to be written
+	 */
+	void write(byte[] bytes, int offset, int length);
+	
+	/**
+	 * Returns the number of frames that have been played, or 
+	 * consumed, since the sink was opened. Used to estimate when
+	 * a rendered frame is heard.
+	 * 
+	 * @return the frame count as a {@code long}
+	 */
+	long getLongFramePosition();
+	
+	/**
+	 * Blocks until the data that has been written has been 
+	 * played or consumed.
+	 */
+	void drain();
+	
+	/**
+	 * Releases the resources held by the sink.
+	 */
+	void close();
+}
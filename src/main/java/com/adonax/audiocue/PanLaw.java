@@ -0,0 +1,162 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A {@code PanLaw} holds the pair of gain functions used to 
+ * perform volume-based panning of a stereo {@code AudioCue}.
+ * Each function takes a pan setting as an input, ranging from 
+ * -1 (100% left) to 1 (100% right) with 0 being the center pan 
+ * setting, and returns the factor to be applied to its channel.
+ * <p>
+ * The functions are evaluated once, when the {@code PanLaw} is
+ * constructed, and stored in gain tables. During playback the 
+ * factors are obtained by linear interpolation between table 
+ * entries, using only primitive arithmetic. Thus custom laws 
+ * can make use of transcendental functions without adding 
+ * costs to the audio thread. For example, a -4.5 dB compromise
+ * law (the geometric mean of the constant power and linear laws)
+ * can be registered as follows:
+ * <pre>
+ *    PanLaw compromise = new PanLaw("-4.5 dB",
+ *        x -&gt; Math.sqrt((1 - x) / 2 * Math.cos(Math.PI * (1 + x) / 4)),
+ *        x -&gt; Math.sqrt((1 + x) / 2 * Math.sin(Math.PI * (1 + x) / 4)));
+ *    myAudioCue.setPanLaw(compromise);</pre>
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ * @see AudioCue.PanType
+ */
+public class PanLaw 
+{
+	/**
+	 * The number of intervals into which the pan range [-1, 1] 
+	 * is divided for the gain tables. 
+	 */
+	public static final int TABLE_INTERVALS = 1024;
+	
+	private static final float HALF_INTERVALS = TABLE_INTERVALS / 2f;
+	
+	private final String name;
+	private final float[] leftGains;
+	private final float[] rightGains;
+
+	/**
+	 * Constructor for a {@code PanLaw}, building the gain tables 
+	 * from the two given functions.
+	 * 
+	 * @param name a {@code String} used to identify the law
+	 * @param left a function that maps a pan setting in the range
+	 * [-1, 1] to the factor for the left channel
+	 * @param right a function that maps a pan setting in the range
+	 * [-1, 1] to the factor for the right channel
+	 */
+	public PanLaw(String name, DoubleUnaryOperator left, 
+			DoubleUnaryOperator right)
+	{
+		this.name = name;
+		leftGains = buildTable(left);
+		rightGains = buildTable(right);
+	}
+	
+	/*
+	 * One extra entry beyond the last interval allows the 
+	 * lookup to read index + 1 when the pan is exactly 1.
+	 */
+	private static float[] buildTable(DoubleUnaryOperator function)
+	{
+		float[] table = new float[TABLE_INTERVALS + 2];
+		for (int i = 0; i <= TABLE_INTERVALS; i++)
+		{
+			table[i] = (float)function.applyAsDouble(
+					(i / (double)HALF_INTERVALS) - 1);
+		}
+		table[TABLE_INTERVALS + 1] = table[TABLE_INTERVALS];
+		
+		return table;
+	}
+	
+	/**
+	 * Returns the name associated with the {@code PanLaw}.
+	 * 
+	 * @return the name as a {@code String}
+	 */
+	public String getName() { return name; }
+	
+	/**
+	 * Returns the factor for the left channel at the given pan 
+	 * setting. Arguments are clamped to the range [-1, 1].
+	 * 
+	 * @param pan a {@code float} ranging from -1 to 1
+	 * @return the left channel factor as a {@code float}
+	 */
+	public float left(float pan)
+	{
+		return lookup(leftGains, pan);
+	}
+
+	/**
+	 * Returns the factor for the right channel at the given pan 
+	 * setting. Arguments are clamped to the range [-1, 1].
+	 * 
+	 * @param pan a {@code float} ranging from -1 to 1
+	 * @return the right channel factor as a {@code float}
+	 */
+	public float right(float pan)
+	{
+		return lookup(rightGains, pan);
+	}
+	
+	// Audio thread code, primitives only.
+	private static float lookup(float[] table, float pan)
+	{
+		final float pos = (Math.max(-1f, Math.min(1f, pan)) + 1) 
+				* HALF_INTERVALS;
+		final int idx = (int)pos;
+		
+		return table[idx] + (pos - idx) * (table[idx + 1] - table[idx]);
+	}
+	
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.util.concurrent.locks.LockSupport;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * {@code RingBufferSink} is an {@code OutputSink} that holds the 
+ * audio data in memory, in a ring buffer from which another 
+ * thread reads it, for example to inspect the output in a test,
+ * to draw it, or to pass it to an audio API other than 
+ * {@code javax.sound.sampled}. 
+ * <p>
+ * The buffer has one writer, the audio thread, and one reader. 
+ * The reader plays the part of the sound device: a 
+ * {@code write} blocks while the ring buffer is full, so the 
+ * audio thread renders at the pace at which the data is read.
+ * Neither side takes a lock.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public class RingBufferSink implements OutputSink 
+{
+	private final byte[] ring;
+	private int frameSize = 4;
+	
+	// total bytes written and read, only ever increasing
+	private volatile long writePosition;
+	private volatile long readPosition;
+	private volatile boolean closed;
+	
+	/**
+	 * Constructor for a {@code RingBufferSink} that holds up to
+	 * the given number of bytes.
+	 * 
+	 * @param capacityBytes an {@code int} specifying the size 
+	 * of the ring buffer in bytes, which should be at least 
+	 * the size of the buffer written by the audio thread
+	 */
+	public RingBufferSink(int capacityBytes)
+	{
+		ring = new byte[capacityBytes];
+	}
+
+	@Override
+	public void open(AudioFormat format, int bufferBytes) 
+	{
+		frameSize = format.getFrameSize();
+		closed = false;
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) 
+	{
+		long wp = writePosition;
+		while (length > 0 && !closed)
+		{
+			final int free = (int)(ring.length - (wp - readPosition));
+			if (free == 0)
+			{
+				LockSupport.parkNanos(100_000);
+				continue;
+			}
+			final int n = Math.min(length, free);
+			copy(bytes, offset, ring, wp, n, true);
+			offset += n;
+			length -= n;
+			wp += n;
+			writePosition = wp;
+		}
+	}
+	
+	/**
+	 * Reads up to the given number of bytes, without blocking. 
+	 * 
+	 * @param dest a {@code byte} array to receive the data
+	 * @param offset an {@code int} specifying the position in 
+	 * dest of the first byte
+	 * @param length an {@code int} specifying the maximum 
+	 * number of bytes to read
+	 * @return the number of bytes read, which is 0 if none
+	 * are available
+	 */
+	public int read(byte[] dest, int offset, int length)
+	{
+		final long rp = readPosition;
+		final int n = (int)Math.min(length, writePosition - rp);
+		copy(dest, offset, ring, rp, n, false);
+		readPosition = rp + n;
+		return n;
+	}
+	
+	/**
+	 * Returns the number of bytes that can be read without 
+	 * blocking.
+	 * 
+	 * @return the number of bytes available
+	 */
+	public int available()
+	{
+		return (int)(writePosition - readPosition);
+	}
+	
+	/*
+	 * Copies between a linear array and the ring, where the 
+	 * ring position wraps around.
+	 */
+	private static void copy(byte[] linear, int linearPos, 
+			byte[] ring, long ringPosition, int length, 
+			boolean toRing)
+	{
+		final int start = (int)(ringPosition % ring.length);
+		final int first = Math.min(length, ring.length - start);
+		if (toRing)
+		{
+			System.arraycopy(linear, linearPos, ring, start, first);
+			System.arraycopy(linear, linearPos + first, ring, 0, 
+					length - first);
+		}
+		else
+		{
+			System.arraycopy(ring, start, linear, linearPos, first);
+			System.arraycopy(ring, 0, linear, linearPos + first, 
+					length - first);
+		}
+	}
+
+	@Override
+	public long getLongFramePosition() 
+	{
+		return readPosition / frameSize;
+	}
+
+	/*
+	 * The data is delivered once written, so there is nothing 
+	 * to wait for.
+	 */
+	@Override
+	public void drain() {}
+
+	/**
+	 * Releases a {@code write} or {@code drain} that is blocked,
+	 * and discards any further writes. Data already written can 
+	 * still be read.
+	 */
+	@Override
+	public void close() 
+	{
+		closed = true;
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+/**
+ * The {@code enum SampleStorage} lists the forms in which an 
+ * {@code AudioCue} can hold its audio data, trading memory 
+ * against cpu cost on the audio thread:
+ * <ul>
+ * <li>{@code FLOAT} holds each sample as a {@code float}, eight
+ * bytes per stereo frame, which the rendering code reads 
+ * directly. This is the default.</li>
+ * <li>{@code PCM16} holds each sample as a 16-bit {@code short},
+ * half the memory of {@code FLOAT}, and loses nothing for 
+ * sources of 16 bits or fewer. The samples read by each segment
+ * of the rendering are converted to {@code float} as they are 
+ * needed, at a small cost per voice.</li>
+ * <li>{@code MAPPED} holds 16-bit samples, as {@code PCM16}, in a
+ * memory-mapped file rather than on the heap, so that the data
+ * adds nothing to the work of the garbage collector, and may be
+ * longer than any array. The operating system reads the pages 
+ * of the file as they are first played, and may drop them again
+ * under memory pressure; the first play of a passage may thus 
+ * wait on the disk. Data that is not already a 16-bit "CD 
+ * Quality" wav file is written to a temporary file in the 
+ * directory given by the system property 
+ * {@code audiocue.mapdir}, by default {@code java.io.tmpdir}.
+ * </li></ul>
+ * <p>
+ * The {@code supportpack.RenderBenchmark} program measures the
+ * cost per voice of each form on the host machine.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ * @see AudioCue#makeStereoCue(java.net.URL, int, SampleStorage)
+ */
+public enum SampleStorage 
+{
+	/**
+	 * Normalized {@code float} values, read directly.
+	 */
+	FLOAT,
+	/**
+	 * Signed 16-bit values, converted as they are read.
+	 */
+	PCM16,
+	/**
+	 * Signed 16-bit values in a memory-mapped file, converted 
+	 * as they are read.
+	 */
+	MAPPED;
+}
@@ -0,0 +1,114 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.Mixer;
+import javax.sound.sampled.SourceDataLine;
+
+/**
+ * {@code SourceDataLineSink} is the default {@code OutputSink}, 
+ * playing the audio data through a 
+ * {@code javax.sound.sampled.SourceDataLine} obtained from the 
+ * given {@code Mixer}, or from the system default if the 
+ * {@code Mixer} is {@code null}.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public class SourceDataLineSink implements OutputSink 
+{
+	private final Mixer mixer;
+	private volatile SourceDataLine sdl;
+	
+	/**
+	 * Constructor for a {@code SourceDataLineSink} that uses the
+	 * system default {@code Mixer}.
+	 */
+	public SourceDataLineSink()
+	{
+		this(null);
+	}
+	
+	/**
+	 * Constructor for a {@code SourceDataLineSink} that uses the
+	 * given {@code Mixer}.
+	 * 
+	 * @param mixer a {@code javax.sound.sampled.Mixer}, or 
+	 * {@code null} for the system default
+	 */
+	public SourceDataLineSink(Mixer mixer)
+	{
+		this.mixer = mixer;
+	}
+	
+	@Override
+	public void open(AudioFormat format, int bufferBytes) 
+			throws LineUnavailableException 
+	{
+		sdl = AudioCue.getSourceDataLine(mixer, AudioCue.info);
+		sdl.open(format, bufferBytes);
+		sdl.start();
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) 
+	{
+		sdl.write(bytes, offset, length);
+	}
+
+	@Override
+	public long getLongFramePosition() 
+	{
+		SourceDataLine line = sdl;
+		return line == null ? 0 : line.getLongFramePosition();
+	}
+
+	@Override
+	public void drain() 
+	{
+		sdl.drain();
+	}
+
+	@Override
+	public void close() 
+	{
+		sdl.close();
+	}
+}
@@ -0,0 +1,206 @@
+/*
+ * This file is part of AudioCue, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+
+import javax.sound.sampled.AudioFormat;
+
+/**
+ * {@code WavFileSink} is an {@code OutputSink} that writes the 
+ * audio data to a wav file. The file is written as fast as the 
+ * data arrives, so an {@code AudioCue} or {@code AudioMixer} 
+ * using this sink renders as fast as the cpu allows rather 
+ * than in real time. The lengths in the header of the file are 
+ * filled in when the sink is closed.
+ * <p>
+ * The file is held open from {@code open} to {@code close}. A 
+ * sink that is opened again, for instance when a cue is 
+ * reopened, rewrites the file from the start.
+ * <p>
+ * Errors in writing the file are thrown from the audio thread 
+ * as an {@code UncheckedIOException}, after the file has been 
+ * closed.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCue 1.1
+ * @see http://adonax.com/AudioCue
+ */
+public class WavFileSink implements OutputSink 
+{
+	private static final int HEADER_BYTES = 44;
+	
+	private final File file;
+	// open from open to close
+	private RandomAccessFile raf;
+	private int frameSize;
+	private volatile long bytesWritten;
+	
+	/**
+	 * Constructor for a {@code WavFileSink}, which creates, or
+	 * replaces, the given file.
+	 * 
+	 * @param file the {@code File} to be written
+	 * @throws IOException if the file cannot be created
+	 */
+	public WavFileSink(File file) throws IOException
+	{
+		this.file = file;
+		try (RandomAccessFile created = new RandomAccessFile(file, "rw"))
+		{
+			created.setLength(0);
+		}
+	}
+	
+	@Override
+	public void open(AudioFormat format, int bufferBytes)
+	{
+		if (raf != null) throw new IllegalStateException(
+				"WavFileSink is already open: " + file);
+		
+		frameSize = format.getFrameSize();
+		bytesWritten = 0;
+		try
+		{
+			raf = new RandomAccessFile(file, "rw");
+			raf.setLength(0);
+			writeHeader(format);
+		}
+		catch (IOException e)
+		{
+			closeQuietly();
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	/*
+	 * A canonical 44 byte header for PCM data. The two lengths 
+	 * are written as zero, and corrected on closing.
+	 */
+	private void writeHeader(AudioFormat format) throws IOException
+	{
+		final int channels = format.getChannels();
+		final int sampleRate = (int)format.getSampleRate();
+		final int bits = format.getSampleSizeInBits();
+		
+		raf.writeBytes("RIFF");
+		raf.writeInt(0);
+		raf.writeBytes("WAVE");
+		raf.writeBytes("fmt ");
+		raf.writeInt(Integer.reverseBytes(16));
+		raf.writeShort(Short.reverseBytes((short)1)); // PCM
+		raf.writeShort(Short.reverseBytes((short)channels));
+		raf.writeInt(Integer.reverseBytes(sampleRate));
+		raf.writeInt(Integer.reverseBytes(sampleRate * frameSize));
+		raf.writeShort(Short.reverseBytes((short)frameSize));
+		raf.writeShort(Short.reverseBytes((short)bits));
+		raf.writeBytes("data");
+		raf.writeInt(0);
+	}
+
+	@Override
+	public void write(byte[] bytes, int offset, int length) 
+	{
+		try
+		{
+			raf.write(bytes, offset, length);
+		}
+		catch (IOException e)
+		{
+			closeQuietly();
+			throw new UncheckedIOException(e);
+		}
+		bytesWritten += length;
+	}
+
+	@Override
+	public long getLongFramePosition() 
+	{
+		return frameSize == 0 ? 0 : bytesWritten / frameSize;
+	}
+
+	@Override
+	public void drain() {}
+
+	/**
+	 * Fills in the lengths in the header of the file, and closes
+	 * it. Has no effect if the sink is not open.
+	 */
+	@Override
+	public void close() 
+	{
+		if (raf == null) return;
+		try
+		{
+			final long dataBytes = bytesWritten;
+			raf.seek(4);
+			raf.writeInt(Integer.reverseBytes(
+					(int)(HEADER_BYTES - 8 + dataBytes)));
+			raf.seek(40);
+			raf.writeInt(Integer.reverseBytes((int)dataBytes));
+		}
+		catch (IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		finally
+		{
+			closeQuietly();
+		}
+	}
+	
+	/*
+	 * Closes the file, if open. An error in closing is dropped,
+	 * as any error in writing has already been reported.
+	 */
+	private void closeQuietly()
+	{
+		if (raf == null) return;
+		try
+		{
+			raf.close();
+		}
+		catch (IOException e)
+		{
+			// the original error is the one reported
+		}
+		raf = null;
+	}
+}
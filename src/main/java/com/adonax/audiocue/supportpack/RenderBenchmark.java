@@ -0,0 +1,797 @@
+/*
+ * This file is part of AudioCueSupportPack, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue.supportpack;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import src.main.java.com.adonax.audiocue.AudioCue;
+import src.main.java.com.adonax.audiocue.AudioCueLoader;
+import src.main.java.com.adonax.audiocue.AudioMixer;
+import src.main.java.com.adonax.audiocue.Interpolation;
+import src.main.java.com.adonax.audiocue.SampleStorage;
+
+/**
+ * {@code RenderBenchmark} is part of <em>AudioCueSupportPack</em>,
+ * a collection of classes and assets used to demonstrate the
+ * {@code AudioCue} class. {@code RenderBenchmark} measures the 
+ * cpu cost of rendering {@code AudioCue} instances, and reports 
+ * the results on the console.
+ * <p>
+ * No output line is used. Each {@code AudioCue} is routed to an 
+ * {@code AudioMixer} that is never started, and buffers are 
+ * pulled directly via {@code readTrack()} or the offline 
+ * {@code render} of the mixer, as fast as the cpu allows. 
+ * Costs are reported as nanoseconds per voice per buffer, and 
+ * as the number of voices a single core could render in real 
+ * time at 44100 frames per second.
+ * <p>
+ * Each measurement is preceded by an untimed warm-up, so that
+ * the JIT compiler has done its work, and is then split into 
+ * several trials. The median trial is reported, along with the
+ * spread between the fastest and slowest trials as a percentage
+ * of the median. A large spread means the figure is not to be 
+ * trusted: rerun with the machine otherwise idle.
+ * <p>
+ * In the {@code main} method, there is a series of {@code if}
+ * statements, one per benchmark. To select a benchmark, place 
+ * a <em>t</em> or the value {@code true} in the if-condition for
+ * that benchmark. To suppress a benchmark, put an <em>f</em> or 
+ * the value {@code false} in the if-condition.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCueSupportPack 1.1
+ * @see http://adonax.com/AudioCue/index.html#supportpack
+ */
+public class RenderBenchmark 
+{
+	static final int BUFFER_FRAMES = 1024;
+	static final int POLYPHONY = 64;
+	static final int WARMUP_BUFFERS = 2000;
+	static final int TIMED_BUFFERS = 2000;
+	static final int TRIALS = 5;
+	
+	// spread of the trials of the latest measurement
+	private double lastSpread;
+	
+	public static void main(String[] args) throws IOException, 
+		UnsupportedAudioFileException
+	{
+		RenderBenchmark rb = new RenderBenchmark();
+		final boolean f = false;
+		final boolean t = true;
+		
+		// place a t (true) to run, an f (false) to skip
+		if (t) rb.benchmarkInterpolation();
+		if (t) rb.benchmarkUnitySpeed();
+		if (t) rb.benchmarkIdleCursors();
+		if (t) rb.benchmarkInstancePool();
+		if (t) rb.benchmarkOfflineRender();
+		if (t) rb.benchmarkRamps();
+		if (t) rb.benchmarkMixerTracks();
+		if (t) rb.benchmarkPcmConversion();
+		if (t) rb.benchmarkLoad();
+		if (t) rb.benchmarkLoadLarge();
+		if (t) rb.benchmarkBatchLoad();
+		if (t) rb.benchmarkSampleStorage();
+	}
+	
+	/*
+	 * Cost per voice of each Interpolation, at a speed 
+	 * that requires interpolation and at a fast speed that
+	 * widens the SINC kernel.
+	 */
+	private void benchmarkInterpolation() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkInterpolation() start");
+		float[] data = makeNoise(44100 * 4);
+		
+		for (double speed : new double[] {0.83, 2.5})
+		{
+			for (Interpolation ip : Interpolation.values())
+			{
+				AudioCue cue = AudioCue.makeStereoCue(data, 
+						"noise", POLYPHONY);
+				cue.setInterpolation(ip);
+				double nanos = timeVoices(cue, speed);
+				report(ip + ", speed " + speed, nanos);
+			}
+		}
+		System.out.println("benchmarkInterpolation() done\n");
+	}
+	
+	/*
+	 * Cost per voice at unity speed, which is rendered as a
+	 * straight copy, against a speed just off of unity, which
+	 * requires interpolation.
+	 */
+	private void benchmarkUnitySpeed() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkUnitySpeed() start");
+		float[] data = makeNoise(44100 * 4);
+		
+		for (double speed : new double[] {1, 1.001})
+		{
+			AudioCue cue = AudioCue.makeStereoCue(data, 
+					"noise", POLYPHONY);
+			double nanos = timeVoices(cue, speed);
+			report("LINEAR, speed " + speed, nanos);
+		}
+		System.out.println("benchmarkUnitySpeed() done\n");
+	}
+	
+	/*
+	 * Cost per buffer of a cue with four playing voices, as the 
+	 * configured polyphony grows. Idle cursors should add little
+	 * or nothing to the cost.
+	 */
+	private void benchmarkIdleCursors() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkIdleCursors() start");
+		float[] data = makeNoise(44100 * 4);
+		
+		for (int polyphony : new int[] {4, 128, 1024})
+		{
+			AudioCue cue = AudioCue.makeStereoCue(data, 
+					"noise", polyphony);
+			AudioMixer audioMixer = new AudioMixer(null, 
+					BUFFER_FRAMES, 10);
+			cue.open(audioMixer);
+			for (int i = 0; i < 4; i++)
+			{
+				cue.play(0.5, 0, 0.83, -1);
+			}
+			
+			double nanos = measure(WARMUP_BUFFERS, TIMED_BUFFERS, 
+					cue::readTrack);
+			cue.close();
+			
+			System.out.println(String.format(
+					"polyphony %-18d %10.1f ns/buffer   +/-%4.1f%%", 
+					polyphony, nanos, lastSpread * 100));
+		}
+		System.out.println("benchmarkIdleCursors() done\n");
+	}
+	
+	/*
+	 * Contention on the pool of available instances: several 
+	 * threads repeatedly obtain and release instances. The atomic
+	 * bitset used by AudioCue (mirrored here so that both pools 
+	 * do the same bare work) is compared with a 
+	 * LinkedBlockingDeque, the structure it replaced. The full
+	 * AudioCue obtainInstance/releaseInstance cycle, which also 
+	 * resets the cursor and checks for listeners, is shown for 
+	 * reference.
+	 */
+	private void benchmarkInstancePool() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkInstancePool() start");
+		final int cycles = 1_000_000;
+		float[] data = makeNoise(1024);
+		
+		for (int threads : new int[] {1, 2, 4, 8})
+		{
+			AtomicLongArray bitset = new AtomicLongArray(
+					(POLYPHONY + 63) >> 6);
+			for (int i = 0; i < POLYPHONY; i++) setBit(bitset, i);
+			Runnable bitsetTask = () -> {
+				for (int i = 0; i < cycles; i++)
+				{
+					int index = pollBit(bitset);
+					if (index >= 0) setBit(bitset, index);
+				}
+			};
+			
+			LinkedBlockingDeque<Object> deque = 
+					new LinkedBlockingDeque<Object>(POLYPHONY);
+			for (int i = 0; i < POLYPHONY; i++) deque.add(new Object());
+			Runnable dequeTask = () -> {
+				for (int i = 0; i < cycles; i++)
+				{
+					Object o = deque.pollLast();
+					if (o != null) deque.offerFirst(o);
+				}
+			};
+			
+			AudioCue cue = AudioCue.makeStereoCue(data, 
+					"noise", POLYPHONY);
+			Runnable cueTask = () -> {
+				for (int i = 0; i < cycles; i++)
+				{
+					int hook = cue.obtainInstance();
+					if (hook >= 0) cue.releaseInstance(hook);
+				}
+			};
+			
+			// warm up, then time
+			timeThreads(threads, bitsetTask);
+			timeThreads(threads, dequeTask);
+			timeThreads(threads, cueTask);
+			double bitsetNanos = timeThreads(threads, bitsetTask);
+			double dequeNanos = timeThreads(threads, dequeTask);
+			double cueNanos = timeThreads(threads, cueTask);
+			
+			System.out.println(String.format(
+					"threads %-2d bitset %7.1f  deque %7.1f  "
+					+ "AudioCue %7.1f ns/cycle", threads, 
+					bitsetNanos / cycles, dequeNanos / cycles,
+					cueNanos / cycles));
+		}
+		System.out.println("benchmarkInstancePool() done\n");
+	}
+	
+	/*
+	 * Offline rendering of an AudioMixer, as the number of playing
+	 * voices grows, reported as the multiple of real time achieved.
+	 */
+	private void benchmarkOfflineRender() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkOfflineRender() start");
+		float[] data = makeNoise(44100 * 4);
+		final int frames = 44100 * 10;
+		float[] out = new float[frames * 2];
+		
+		for (int voices : new int[] {1, 8, 32})
+		{
+			AudioCue cue = AudioCue.makeStereoCue(data, 
+					"noise", voices);
+			AudioMixer audioMixer = new AudioMixer(null, 
+					BUFFER_FRAMES, 10);
+			cue.open(audioMixer);
+			for (int i = 0; i < voices; i++)
+			{
+				cue.play(0.5 / voices, 0, 0.83, -1);
+			}
+			
+			double nanos = measure(1, TRIALS, 
+					() -> audioMixer.render(out, 0, frames));
+			cue.close();
+			
+			System.out.println(String.format(
+					"voices %-21d %10.1f x real time +/-%4.1f%%", 
+					voices, frames / 44100.0 / (nanos / 1e9), 
+					lastSpread * 100));
+		}
+		System.out.println("benchmarkOfflineRender() done\n");
+	}
+	
+	/*
+	 * Cost per voice while the volume, pan or speed of every 
+	 * voice is ramping, against the steady state. Each voice is 
+	 * given a new target every buffer, so that its ramps never 
+	 * complete; the cost of queuing the changes is included.
+	 */
+	private void benchmarkRamps() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkRamps() start");
+		float[] data = makeNoise(44100 * 4);
+		final String[] states = {"steady", "volume ramp", 
+				"pan ramp", "speed ramp", "all ramps"};
+		
+		for (int state = 0; state < states.length; state++)
+		{
+			final boolean volume = state == 1 || state == 4;
+			final boolean pan = state == 2 || state == 4;
+			final boolean speed = state == 3 || state == 4;
+			
+			AudioCue cue = AudioCue.makeStereoCue(data, 
+					"noise", POLYPHONY);
+			AudioMixer audioMixer = new AudioMixer(null, 
+					BUFFER_FRAMES, 10);
+			cue.open(audioMixer);
+			final int[] hooks = new int[POLYPHONY];
+			for (int i = 0; i < POLYPHONY; i++)
+			{
+				hooks[i] = cue.play(0.5, 0, 0.83, -1);
+			}
+			
+			final int[] buffers = new int[1];
+			double nanos = measure(WARMUP_BUFFERS, TIMED_BUFFERS, () -> 
+			{
+				final boolean odd = (buffers[0]++ & 1) != 0;
+				for (int hook : hooks)
+				{
+					if (volume) cue.setVolume(hook, odd ? 0.3 : 0.6);
+					if (pan) cue.setPan(hook, odd ? -0.5 : 0.5);
+					if (speed) cue.setSpeed(hook, odd ? 0.8 : 1.2);
+				}
+				cue.readTrack();
+			});
+			cue.close();
+			report(states[state], nanos / POLYPHONY);
+		}
+		System.out.println("benchmarkRamps() done\n");
+	}
+	
+	/*
+	 * Cost of mixing a growing number of tracks, each a cue with
+	 * a single playing voice, through the offline render of an 
+	 * AudioMixer. The cost is reported per track.
+	 * <p>
+	 * On a single core of a 2.0 GHz Xeon (AVX-512), with JDK 8 
+	 * and 17, 1 to 1000 tracks measured 18 to 23 microseconds per
+	 * track per buffer, about 1000 to 1300 tracks per core in 
+	 * real time. This includes rendering each track's voice at
+	 * speed 0.83, not only the mixing.
+	 */
+	private void benchmarkMixerTracks() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkMixerTracks() start");
+		float[] data = makeNoise(44100 * 4);
+		final float[] out = new float[BUFFER_FRAMES * 2];
+		
+		for (int tracks : new int[] {1, 10, 100, 1000})
+		{
+			AudioMixer audioMixer = new AudioMixer(null, 
+					BUFFER_FRAMES, 10);
+			AudioCue[] cues = new AudioCue[tracks];
+			for (int i = 0; i < tracks; i++)
+			{
+				cues[i] = AudioCue.makeStereoCue(data, "noise", 1);
+				cues[i].open(audioMixer);
+				cues[i].play(0.5 / tracks, 0, 0.83, -1);
+			}
+			
+			// about the same number of voice buffers at each size
+			int buffers = Math.max(TRIALS * 4, 
+					TIMED_BUFFERS * 10 / tracks);
+			double nanos = measure(buffers, buffers, 
+					() -> audioMixer.render(out, 0, BUFFER_FRAMES));
+			for (AudioCue cue : cues) cue.close();
+			report(tracks + " tracks", nanos / tracks);
+		}
+		System.out.println("benchmarkMixerTracks() done\n");
+	}
+	
+	/*
+	 * Cost of converting a buffer of normalized floats to the 
+	 * 16-bit PCM bytes written to the output line. The figure 
+	 * on the right is the number of lines a single core could 
+	 * keep supplied in real time.
+	 */
+	private void benchmarkPcmConversion() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkPcmConversion() start");
+		final float[] buffer = makeNoise(BUFFER_FRAMES);
+		final byte[] bytes = new byte[BUFFER_FRAMES * 4];
+		
+		double nanos = measure(WARMUP_BUFFERS * 10, TIMED_BUFFERS * 10, 
+				() -> AudioCue.fromBufferToAudioBytes(bytes, buffer));
+		double bufferNanos = BUFFER_FRAMES * 1_000_000_000.0 / 44100;
+		System.out.println(String.format(
+				"%-28s %10.1f ns/buffer %17.0f lines/core +/-%4.1f%%", 
+				"fromBufferToAudioBytes", nanos, bufferNanos / nanos,
+				lastSpread * 100));
+		System.out.println("benchmarkPcmConversion() done\n");
+	}
+	
+	/*
+	 * Time taken by makeStereoCue(URL, int) to load each of the
+	 * wav files of the support pack, reported as a multiple of 
+	 * the playing time of the file.
+	 */
+	private void benchmarkLoad() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkLoad() start");
+		
+		for (String name : new String[] {"a3.wav", "frog.wav", 
+				"gunshot.wav", "shortshot.wav"})
+		{
+			final URL url = getClass().getResource("res/" + name);
+			final long frames = AudioCue.makeStereoCue(url, 1)
+					.getFrameLength();
+			
+			double nanos = measure(20, 50, 
+					() -> AudioCue.makeStereoCue(url, 1));
+			System.out.println(String.format(
+					"%-28s %10.3f ms/load %16.0f x real time +/-%4.1f%%", 
+					name, nanos / 1e6, frames / 44100.0 / (nanos / 1e9), 
+					lastSpread * 100));
+		}
+		System.out.println("benchmarkLoad() done\n");
+	}
+	
+	/*
+	 * Loading of a large wav file, made by repeating a3.wav to 
+	 * some 32 MB in a temporary file. The chunked decoding of 
+	 * makeStereoCue(URL, int) is compared with a mirror of the 
+	 * decoding it replaced, which read 1024 bytes at a time and 
+	 * scaled the samples in a second pass.
+	 */
+	private void benchmarkLoadLarge() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkLoadLarge() start");
+		
+		AudioInputStream source = AudioSystem.getAudioInputStream(
+				getClass().getResource("res/a3.wav"));
+		AudioFormat format = source.getFormat();
+		byte[] a3 = new byte[(int)source.getFrameLength() 
+				* format.getFrameSize()];
+		new DataInputStream(source).readFully(a3);
+		source.close();
+		
+		byte[] large = new byte[(32 << 20) / a3.length * a3.length];
+		for (int i = 0; i < large.length; i += a3.length)
+		{
+			System.arraycopy(a3, 0, large, i, a3.length);
+		}
+		final long frames = large.length / format.getFrameSize();
+		File file = File.createTempFile("a3large", ".wav");
+		file.deleteOnExit();
+		AudioSystem.write(new AudioInputStream(
+				new ByteArrayInputStream(large), format, frames), 
+				AudioFileFormat.Type.WAVE, file);
+		large = null;
+		final URL url = file.toURI().toURL();
+		
+		double nanos = measure(2, TRIALS, () -> loadPrevious(url));
+		reportLoad("1024-byte reads (previous)", frames, nanos);
+		nanos = measure(2, TRIALS, () -> AudioCue.makeStereoCue(url, 1));
+		reportLoad("makeStereoCue(URL, int)", frames, nanos);
+		
+		file.delete();
+		System.out.println("benchmarkLoadLarge() done\n");
+	}
+	
+	/*
+	 * Time to load a hundred cues, the wav files of the support
+	 * pack twenty-five times over, one after another on the 
+	 * calling thread and with an AudioCueLoader of a growing 
+	 * number of threads.
+	 */
+	private void benchmarkBatchLoad() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkBatchLoad() start");
+		
+		final List<URL> urls = new ArrayList<>();
+		for (int i = 0; i < 25; i++)
+		{
+			for (String name : new String[] {"a3.wav", "frog.wav", 
+					"gunshot.wav", "shortshot.wav"})
+			{
+				urls.add(getClass().getResource("res/" + name));
+			}
+		}
+		final int[] polyphonies = new int[urls.size()];
+		Arrays.fill(polyphonies, 4);
+		
+		double nanos = measure(1, TRIALS, () -> 
+		{
+			for (URL url : urls) AudioCue.makeStereoCue(url, 4);
+		});
+		System.out.println(String.format(
+				"%-28s %10.1f ms/batch        +/-%4.1f%%", 
+				"sequential", nanos / 1e6, lastSpread * 100));
+		
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads : new int[] {1, 2, 4, cores})
+		{
+			try (AudioCueLoader loader = new AudioCueLoader(threads))
+			{
+				nanos = measure(1, TRIALS, () -> CompletableFuture.allOf(
+						loader.loadAll(urls, polyphonies)
+								.toArray(new CompletableFuture<?>[0]))
+						.join());
+			}
+			System.out.println(String.format(
+					"%-28s %10.1f ms/batch        +/-%4.1f%%", 
+					"AudioCueLoader, " + threads + " threads", 
+					nanos / 1e6, lastSpread * 100));
+		}
+		System.out.println("benchmarkBatchLoad() done\n");
+	}
+	
+	/*
+	 * Heap held by, and cost per voice of, cues holding their 
+	 * data in each SampleStorage form. The heap figure is the 
+	 * growth of the used heap, after garbage collection, from 
+	 * making four one-minute cues, each from its own copy of 
+	 * the data. PCM16 should hold half the memory of FLOAT, and
+	 * MAPPED next to none, at some cost per voice for converting
+	 * the frames each segment reads.
+	 */
+	private void benchmarkSampleStorage() 
+		throws IOException, UnsupportedAudioFileException
+	{
+		System.out.println("benchmarkSampleStorage() start");
+		float[] data = makeNoise(44100 * 60);
+		
+		for (SampleStorage storage : SampleStorage.values())
+		{
+			AudioCue[] cues = new AudioCue[4];
+			long before = usedHeap();
+			for (int i = 0; i < cues.length; i++)
+			{
+				cues[i] = AudioCue.makeStereoCue(data.clone(), 
+						"noise", 1, storage);
+			}
+			long held = usedHeap() - before;
+			System.out.println(String.format(
+					"%-28s %10.1f MB per minute of audio", 
+					storage + ", heap", held / (cues.length * 1e6)));
+			
+			for (double speed : new double[] {1, 0.83})
+			{
+				for (Interpolation ip : new Interpolation[] {
+						Interpolation.LINEAR, Interpolation.SINC})
+				{
+					if (speed == 1 && ip == Interpolation.SINC) continue;
+					AudioCue cue = AudioCue.makeStereoCue(data, 
+							"noise", POLYPHONY, storage);
+					cue.setInterpolation(ip);
+					double nanos = timeVoices(cue, speed);
+					report(storage + ", " + ip + ", speed " + speed, 
+							nanos);
+				}
+			}
+		}
+		System.out.println("benchmarkSampleStorage() done\n");
+	}
+	
+	static long usedHeap()
+	{
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	void reportLoad(String label, long frames, double nanos)
+	{
+		System.out.println(String.format(
+				"%-28s %10.1f ms/load %13.1f MB/s     +/-%4.1f%%", 
+				label, nanos / 1e6, frames * 4 / (nanos / 1e3), 
+				lastSpread * 100));
+	}
+	
+	// mirror of the decoding replaced in AudioCue.loadURL
+	static float[] loadPrevious(URL url) 
+		throws IOException, UnsupportedAudioFileException
+	{
+		AudioInputStream ais = AudioSystem.getAudioInputStream(url);
+		float[] temp = new float[(int)ais.getFrameLength() * 2];
+		long tempCountdown = temp.length;
+		
+		int bytesRead = 0;
+		int bufferIdx;
+		int clipIdx = 0;
+		byte[] buffer = new byte[1024];
+		while((bytesRead = ais.read(buffer, 0, 1024)) != -1)
+		{
+			bufferIdx = 0;
+			for (int i = 0, n = (bytesRead >> 1); i < n; i ++)
+			{
+				if ( tempCountdown-- >= 0)
+				{
+					temp[clipIdx++] = 
+							( buffer[bufferIdx++] & 0xff )
+							| ( buffer[bufferIdx++] << 8 ) ;
+				}
+			}
+		}
+		
+		for (int i = 0; i < temp.length; i++)
+		{
+			temp[i] = temp[i] / 32767f;
+		}
+		ais.close();
+		return temp;
+	}
+	
+	// mirrors of the AudioCue pool operations
+	private static volatile int nextBit;
+	
+	static int pollBit(AtomicLongArray bitset)
+	{
+		final int start = nextBit;
+		final int startWord = start >> 6;
+		final int n = bitset.length();
+		for (int i = 0; i <= n; i++)
+		{
+			final int word = (startWord + i) % n;
+			final long mask = i == 0 ? -1L << start 
+					: i == n ? ~(-1L << start) : -1L;
+			long all;
+			long bits;
+			while ((bits = (all = bitset.get(word)) & mask) != 0)
+			{
+				final long lowest = bits & -bits;
+				if (bitset.compareAndSet(word, all, all & ~lowest))
+				{
+					final int index = (word << 6) 
+							+ Long.numberOfTrailingZeros(lowest);
+					nextBit = index + 1 < POLYPHONY ? index + 1 : 0;
+					return index;
+				}
+			}
+		}
+		return -1;
+	}
+	
+	static void setBit(AtomicLongArray bitset, int index)
+	{
+		final int word = index >> 6;
+		long bits;
+		do
+		{
+			bits = bitset.get(word);
+		}
+		while (!bitset.compareAndSet(word, bits, bits | 1L << index));
+	}
+	
+	/*
+	 * Runs the task concurrently on the given number of threads
+	 * and returns the elapsed nanoseconds once all have finished.
+	 */
+	double timeThreads(int threads, Runnable task)
+	{
+		CountDownLatch startGate = new CountDownLatch(1);
+		CountDownLatch endGate = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++)
+		{
+			new Thread(() -> {
+				try 
+				{
+					startGate.await();
+					task.run();
+				} 
+				catch (InterruptedException e) 
+				{
+					Thread.currentThread().interrupt();
+				}
+				finally
+				{
+					endGate.countDown();
+				}
+			}).start();
+		}
+		
+		long start = System.nanoTime();
+		startGate.countDown();
+		try 
+		{
+			endGate.await();
+		} 
+		catch (InterruptedException e) 
+		{
+			Thread.currentThread().interrupt();
+		}
+		return System.nanoTime() - start;
+	}
+	
+	/*
+	 * Plays POLYPHONY looping voices at the given speed and
+	 * returns the average nanoseconds per voice per buffer.
+	 */
+	double timeVoices(AudioCue cue, double speed) 
+		throws IOException, UnsupportedAudioFileException
+	{
+		AudioMixer audioMixer = new AudioMixer(null, BUFFER_FRAMES, 10);
+		cue.open(audioMixer);
+		for (int i = 0; i < POLYPHONY; i++)
+		{
+			cue.play(0.5, (i % 9 - 4) / 4.0, speed, -1);
+		}
+		
+		double nanos = measure(WARMUP_BUFFERS, TIMED_BUFFERS, 
+				cue::readTrack);
+		
+		cue.close();
+		return nanos / POLYPHONY;
+	}
+	
+	/*
+	 * A unit of work to be timed.
+	 */
+	interface Work
+	{
+		void run() throws IOException, UnsupportedAudioFileException;
+	}
+	
+	/*
+	 * Runs the work the given number of times untimed, then the
+	 * given number of times again split over TRIALS trials, and 
+	 * returns the median nanoseconds per run. The spread of the
+	 * trials, relative to the median, is left in lastSpread.
+	 */
+	double measure(int warmups, int iterations, Work work) 
+			throws IOException, UnsupportedAudioFileException
+	{
+		for (int i = 0; i < warmups; i++) work.run();
+		
+		final int perTrial = Math.max(1, iterations / TRIALS);
+		double[] trials = new double[TRIALS];
+		for (int trial = 0; trial < TRIALS; trial++)
+		{
+			long start = System.nanoTime();
+			for (int i = 0; i < perTrial; i++) work.run();
+			trials[trial] = (System.nanoTime() - start) 
+					/ (double)perTrial;
+		}
+		
+		Arrays.sort(trials);
+		final double median = trials[TRIALS / 2];
+		lastSpread = (trials[TRIALS - 1] - trials[0]) / median;
+		return median;
+	}
+	
+	void report(String label, double nanosPerVoiceBuffer)
+	{
+		double bufferNanos = BUFFER_FRAMES * 1_000_000_000.0 / 44100;
+		System.out.println(String.format(
+				"%-28s %10.1f ns/voice/buffer %10.0f voices/core +/-%4.1f%%", 
+				label, nanosPerVoiceBuffer, 
+				bufferNanos / nanosPerVoiceBuffer, lastSpread * 100));
+	}
+	
+	static float[] makeNoise(int frames)
+	{
+		java.util.Random random = new java.util.Random(1);
+		float[] data = new float[frames * 2];
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (float)(random.nextGaussian() * 0.2);
+		}
+		return data;
+	}
+}
@@ -0,0 +1,356 @@
+/*
+ * This file is part of AudioCueSupportPack, 
+ * Copyright 2017 Philip Freihofner.
+ *  
+ * Redistribution and use in source and binary forms, with or 
+ * without modification, are permitted provided that the 
+ * following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer.
+ * 
+ * 2. Redistributions in binary form must reproduce the above 
+ * copyright notice, this list of conditions and the following 
+ * disclaimer in the documentation and/or other materials 
+ * provided with the distribution.
+ * 
+ * 3. Neither the name of the copyright holder nor the names of 
+ * its contributors may be used to endorse or promote products 
+ * derived from this software without specific prior written 
+ * permission.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND 
+ * CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, 
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF 
+ * MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE 
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR 
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, 
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+ * NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; 
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN 
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR 
+ * OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, 
+ * EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package src.main.java.com.adonax.audiocue.supportpack;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import src.main.java.com.adonax.audiocue.AudioCue;
+import src.main.java.com.adonax.audiocue.AudioCueInstanceEvent;
+import src.main.java.com.adonax.audiocue.AudioCueListener;
+import src.main.java.com.adonax.audiocue.AudioMixer;
+import src.main.java.com.adonax.audiocue.Interpolation;
+import src.main.java.com.adonax.audiocue.SampleStorage;
+
+/**
+ * {@code RenderRegression} is part of <em>AudioCueSupportPack</em>,
+ * a collection of classes and assets used to demonstrate the
+ * {@code AudioCue} class. {@code RenderRegression} checks the 
+ * two guarantees the audio thread depends upon: that rendering 
+ * a block allocates nothing on the heap, and that blocks render
+ * well within the time they take to play.
+ * <p>
+ * No output line is used, so the checks can run on a machine 
+ * without a sound device. Each scenario is rendered block by 
+ * block with the offline {@code render} method of an 
+ * {@code AudioCue} or an {@code AudioMixer}, which runs the code 
+ * of the audio thread on the calling thread. After a warm-up, 
+ * allocations are counted with the thread allocation counter of
+ * the HotSpot {@code ThreadMXBean}, and each block is timed. A
+ * block that misses the deadline is a dropout, so by default the
+ * slowest block is gated. On a noisy build server, a percentile
+ * of the block times may be gated instead; the slowest block is 
+ * reported either way.
+ * <p>
+ * The results are written as a JSON report, to the file named
+ * by the first argument, or else to standard output. Progress 
+ * is written to standard error. The process exits with status 1
+ * if any scenario fails, so that the checks can be run by a 
+ * build server. Three system properties configure the run:
+ * <ul><li>{@code audiocue.deadline}, the fraction of the block
+ * duration the gated block time may take, default 0.5</li>
+ * <li>{@code audiocue.blocks}, the number of blocks checked 
+ * per scenario, default 2000</li>
+ * <li>{@code audiocue.percentile}, the percentile of the block
+ * times that is gated, default 100, the slowest block</li></ul>
+ * <p>
+ * In the {@code main} method, there is a series of {@code if}
+ * statements, one per scenario. To select a scenario, place 
+ * a <em>t</em> or the value {@code true} in the if-condition for
+ * that scenario. To suppress a scenario, put an <em>f</em> or 
+ * the value {@code false} in the if-condition.
+ * 
+ * @author Philip Freihofner
+ * @version AudioCueSupportPack 1.1
+ * @see http://adonax.com/AudioCue/index.html#supportpack
+ */
+public class RenderRegression 
+{
+	static final int BLOCK_FRAMES = 1024;
+	static final int WARMUP_BLOCKS = 2000;
+	static final int POLYPHONY = 64;
+	
+	private final int blocks;
+	private final double deadlineFraction;
+	private final long deadlineNanos;
+	private final double percentile;
+	private final long[] blockNanos;
+	private final StringBuilder results = new StringBuilder();
+	private boolean failed;
+	
+	private final com.sun.management.ThreadMXBean threadMXBean = 
+			(com.sun.management.ThreadMXBean)
+				ManagementFactory.getThreadMXBean();
+	
+	public static void main(String[] args) throws IOException
+	{
+		RenderRegression rr = new RenderRegression(
+				Integer.getInteger("audiocue.blocks", 2000),
+				Double.parseDouble(System.getProperty(
+						"audiocue.deadline", "0.5")),
+				Double.parseDouble(System.getProperty(
+						"audiocue.percentile", "100")));
+		final boolean f = false;
+		final boolean t = true;
+		
+		// place a t (true) to run, an f (false) to skip
+		if (t) rr.checkCueVoices();
+		if (t) rr.checkCueSinc();
+		if (t) rr.checkCuePcm16();
+		if (t) rr.checkCueRamps();
+		if (t) rr.checkCueEvents();
+		if (t) rr.checkMixerTracks();
+		
+		String report = rr.report();
+		if (args.length > 0)
+		{
+			try (PrintWriter out = new PrintWriter(new File(args[0]), 
+					"UTF-8"))
+			{
+				out.print(report);
+			}
+		}
+		else
+		{
+			System.out.print(report);
+		}
+		System.exit(rr.failed ? 1 : 0);
+	}
+	
+	RenderRegression(int blocks, double deadlineFraction, 
+			double percentile)
+	{
+		this.blocks = blocks;
+		this.deadlineFraction = deadlineFraction;
+		this.percentile = percentile;
+		deadlineNanos = (long)(deadlineFraction 
+				* BLOCK_FRAMES * 1_000_000_000.0 / 44100);
+		blockNanos = new long[blocks];
+	}
+	
+	/*
+	 * Renders one block of a scenario.
+	 */
+	interface Block
+	{
+		void render();
+	}
+	
+	/*
+	 * Voices at speeds spread about unity, none of them whole,
+	 * with the default LINEAR interpolation.
+	 */
+	private void checkCueVoices()
+	{
+		AudioCue cue = AudioCue.makeStereoCue(
+				RenderBenchmark.makeNoise(44100 * 4), "noise", POLYPHONY);
+		playVoices(cue, POLYPHONY);
+		final float[] out = new float[BLOCK_FRAMES * 2];
+		check("cue, " + POLYPHONY + " voices", 
+				() -> cue.render(out, 0, BLOCK_FRAMES));
+	}
+	
+	/*
+	 * The most costly interpolation, with fewer voices.
+	 */
+	private void checkCueSinc()
+	{
+		AudioCue cue = AudioCue.makeStereoCue(
+				RenderBenchmark.makeNoise(44100 * 4), "noise", 
+				POLYPHONY / 4);
+		cue.setInterpolation(Interpolation.SINC);
+		playVoices(cue, POLYPHONY / 4);
+		final float[] out = new float[BLOCK_FRAMES * 2];
+		check("cue, SINC, " + POLYPHONY / 4 + " voices", 
+				() -> cue.render(out, 0, BLOCK_FRAMES));
+	}
+	
+	/*
+	 * The voices of checkCueVoices, reading 16-bit data.
+	 */
+	private void checkCuePcm16()
+	{
+		AudioCue cue = AudioCue.makeStereoCue(
+				RenderBenchmark.makeNoise(44100 * 4), "noise", POLYPHONY,
+				SampleStorage.PCM16);
+		playVoices(cue, POLYPHONY);
+		final float[] out = new float[BLOCK_FRAMES * 2];
+		check("cue, PCM16, " + POLYPHONY + " voices", 
+				() -> cue.render(out, 0, BLOCK_FRAMES));
+	}
+	
+	/*
+	 * Every voice is given new volume, pan and speed targets 
+	 * each block, so that its ramps never complete.
+	 */
+	private void checkCueRamps()
+	{
+		AudioCue cue = AudioCue.makeStereoCue(
+				RenderBenchmark.makeNoise(44100 * 4), "noise", POLYPHONY);
+		final int[] hooks = playVoices(cue, POLYPHONY);
+		final float[] out = new float[BLOCK_FRAMES * 2];
+		final int[] count = new int[1];
+		check("cue, " + POLYPHONY + " voices ramping", () -> 
+		{
+			final boolean odd = (count[0]++ & 1) != 0;
+			for (int hook : hooks)
+			{
+				cue.setVolume(hook, odd ? 0.3 : 0.6);
+				cue.setPan(hook, odd ? -0.5 : 0.5);
+				cue.setSpeed(hook, odd ? 0.8 : 1.2);
+			}
+			cue.render(out, 0, BLOCK_FRAMES);
+		});
+	}
+	
+	/*
+	 * A short looping cue with a listener registered, so that
+	 * several loop events are raised every block.
+	 */
+	private void checkCueEvents()
+	{
+		AudioCue cue = AudioCue.makeStereoCue(
+				RenderBenchmark.makeNoise(4410), "noise", POLYPHONY);
+		final AtomicInteger events = new AtomicInteger();
+		cue.addAudioCueListener(new AudioCueListener() {
+			public void audioCueOpened(long now, int threadPriority, 
+					int bufferSize, AudioCue source) {}
+			public void audioCueClosed(long now, AudioCue source) {}
+			public void instanceEventOccurred(AudioCueInstanceEvent event) 
+			{
+				events.incrementAndGet();
+			}
+		});
+		playVoices(cue, POLYPHONY);
+		final float[] out = new float[BLOCK_FRAMES * 2];
+		check("cue, " + POLYPHONY + " voices looping, listener", 
+				() -> cue.render(out, 0, BLOCK_FRAMES));
+		System.err.println("    events delivered: " + events.get() 
+				+ ", dropped: " + cue.getDroppedEventCount());
+	}
+	
+	/*
+	 * Sixteen cues of four voices each, mixed by an AudioMixer.
+	 */
+	private void checkMixerTracks() 
+	{
+		float[] data = RenderBenchmark.makeNoise(44100 * 4);
+		final AudioMixer audioMixer = new AudioMixer(null, 
+				BLOCK_FRAMES, 10);
+		AudioCue[] cues = new AudioCue[16];
+		for (int i = 0; i < cues.length; i++)
+		{
+			cues[i] = AudioCue.makeStereoCue(data, "noise", 4);
+			cues[i].open(audioMixer);
+			playVoices(cues[i], 4);
+		}
+		final float[] out = new float[BLOCK_FRAMES * 2];
+		check("mixer, " + cues.length + " tracks of 4 voices", 
+				() -> audioMixer.render(out, 0, BLOCK_FRAMES));
+		for (AudioCue cue : cues) cue.close();
+	}
+	
+	/*
+	 * Starts the given number of instances of the cue, looping,
+	 * returning the instance hooks.
+	 */
+	private int[] playVoices(AudioCue cue, int voices)
+	{
+		int[] hooks = new int[voices];
+		for (int i = 0; i < hooks.length; i++)
+		{
+			hooks[i] = cue.play(0.5 / hooks.length, (i % 9 - 4) / 4.0, 
+					0.5 + i / (double)hooks.length + 0.001, -1);
+		}
+		return hooks;
+	}
+	
+	/*
+	 * Renders the warm-up blocks, then the checked blocks, and 
+	 * adds the outcome to the report.
+	 */
+	private void check(String scenario, Block block)
+	{
+		for (int i = 0; i < WARMUP_BLOCKS; i++) block.render();
+		
+		final long id = Thread.currentThread().getId();
+		// the cost of the measurement itself
+		long overhead = threadMXBean.getThreadAllocatedBytes(id);
+		overhead = threadMXBean.getThreadAllocatedBytes(id) - overhead;
+		
+		long before = threadMXBean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < blocks; i++)
+		{
+			long start = System.nanoTime();
+			block.render();
+			blockNanos[i] = System.nanoTime() - start;
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(id) 
+				- before - overhead;
+		
+		Arrays.sort(blockNanos);
+		long median = blockNanos[blocks / 2];
+		long p99 = blockNanos[(int)(blocks * 0.99)];
+		long worst = blockNanos[blocks - 1];
+		long gated = blockNanos[Math.max(0, Math.min(blocks - 1, 
+				(int)Math.ceil(blocks * percentile / 100) - 1))];
+		boolean passed = allocated == 0 && gated <= deadlineNanos;
+		failed |= !passed;
+		
+		if (results.length() > 0) results.append(",\n");
+		results.append(String.format(Locale.ROOT, 
+				"    {\"scenario\": \"%s\", \"allocatedBytes\": %d, "
+				+ "\"medianNanos\": %d, \"p99Nanos\": %d, "
+				+ "\"worstNanos\": %d, \"gatedNanos\": %d, "
+				+ "\"gatedFraction\": %.4f, "
+				+ "\"passed\": %b}", 
+				scenario, allocated, median, p99, worst, gated,
+				gated / (deadlineNanos / deadlineFraction), passed));
+		
+		System.err.println(String.format(Locale.ROOT, 
+				"%-36s %s  %d bytes, gated block %.3f ms of %.3f ms "
+				+ "allowed, worst %.3f ms", 
+				scenario, passed ? "passed" : "FAILED", allocated, 
+				gated / 1e6, deadlineNanos / 1e6, worst / 1e6));
+	}
+	
+	String report()
+	{
+		return String.format(Locale.ROOT, 
+				"{\n  \"blockFrames\": %d,\n  \"blocks\": %d,\n"
+				+ "  \"deadlineFraction\": %s,\n  \"deadlineNanos\": %d,\n"
+				+ "  \"percentile\": %s,\n"
+				+ "  \"passed\": %b,\n  \"results\": [\n%s\n  ]\n}\n",
+				BLOCK_FRAMES, blocks, deadlineFraction, deadlineNanos, 
+				percentile, !failed, results);
+	}
+}
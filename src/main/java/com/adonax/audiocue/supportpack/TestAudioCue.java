@@ -36,9 +36,29 @@
  */
 package src.main.java.com.adonax.audiocue.supportpack;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
 import javax.sound.sampled.AudioSystem;
 import javax.sound.sampled.Clip;
@@ -47,8 +67,17 @@ import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.UnsupportedAudioFileException;
 
 import src.main.java.com.adonax.audiocue.AudioCue;
+import src.main.java.com.adonax.audiocue.AudioCueCache;
+import src.main.java.com.adonax.audiocue.AudioCueLoader;
 import src.main.java.com.adonax.audiocue.AudioCueInstanceEvent;
+import src.main.java.com.adonax.audiocue.AudioCueInstanceEvent.Type;
 import src.main.java.com.adonax.audiocue.AudioCueListener;
+import src.main.java.com.adonax.audiocue.AudioMixer;
+import src.main.java.com.adonax.audiocue.Interpolation;
+import src.main.java.com.adonax.audiocue.NullSink;
+import src.main.java.com.adonax.audiocue.RingBufferSink;
+import src.main.java.com.adonax.audiocue.SampleStorage;
+import src.main.java.com.adonax.audiocue.WavFileSink;
 
 /**
  * {@code TestAudioCue} is part of <em>AudioCueSupportPack</em>,
@@ -102,6 +131,19 @@ public class TestAudioCue implements AudioCueListener
 		if (t) ts.runTest(ts.testPlaybackSpeed());
 		if (t) ts.runTest(ts.testReset());
 		if (t) ts.runTest(ts.testLooping());
+		if (t) ts.runTest(ts.testInstanceReuse());
+		if (t) ts.runTest(ts.testPanRamp());
+		if (t) ts.runTest(ts.testRenderAllocation());
+		if (t) ts.runTest(ts.testScheduledStart());
+		if (t) ts.runTest(ts.testPresentationTime());
+		if (t) ts.runTest(ts.testOutputSinks());
+		if (t) ts.runTest(ts.testCommandDelivery());
+		if (t) ts.runTest(ts.testOfflineRender());
+		if (t) ts.runTest(ts.testLoadFormats());
+		if (t) ts.runTest(ts.testBatchLoad());
+		if (t) ts.runTest(ts.testCache());
+		if (t) ts.runTest(ts.testSampleStorage());
+		if (t) ts.runTest(ts.testMappedStorage());
 	}
 
 	private void runTest(String s) 
@@ -360,6 +402,7 @@ public class TestAudioCue implements AudioCueListener
 		System.out.println(">test fractional position to 0.25");
 		cue.stop(acc);
 		cue.setFractionalPosition(acc, 0.25);
+		Thread.sleep(100); // applied with the next buffer
 		assert (cue.getFramePosition(acc) == (frameLength - 1) / 4.0);
 		cue.start(acc);
 		Thread.sleep(1000);
@@ -367,6 +410,7 @@ public class TestAudioCue implements AudioCueListener
 		System.out.println(">millisecond position to 300 millis");
 		cue.stop(acc);
 		cue.setMillisecondPosition(acc, 300);
+		Thread.sleep(100); // applied with the next buffer
 		assert (cue.getFramePosition(acc) == 4410 * 3);
 		cue.start(acc);
 		Thread.sleep(3000);
@@ -374,10 +418,13 @@ public class TestAudioCue implements AudioCueListener
 		System.out.println(">setting position to absurdly high value");
 		cue.stop(acc);
 		cue.setFramePosition(acc, 44100 * 2000); // cue is NOT this long
+		Thread.sleep(100); // applied with the next buffer
 		assert (cue.getFramePosition(acc) == frameLength - 1);
 		cue.setFractionalPosition(acc, 1.5);
+		Thread.sleep(100); // applied with the next buffer
 		assert (cue.getFramePosition(acc) == frameLength - 1);
 		cue.setMillisecondPosition(acc, 100_000_000);
+		Thread.sleep(100); // applied with the next buffer
 		assert (cue.getFramePosition(acc) == frameLength - 1);
 		
 		System.out.println("asserts passed");		
@@ -420,7 +467,909 @@ public class TestAudioCue implements AudioCueListener
 		
 		return "testLooping() done";
 	}
+	
+	/*
+	 * Instances are handed out round-robin, over a polyphony that
+	 * spans two words of the pool's bitset: a hook just released
+	 * is not reused while others are free, every hook is handed 
+	 * out once before the pool is empty, and the search wraps 
+	 * around to a hook released behind it.
+	 */
+	private String testInstanceReuse()
+	{
+		System.out.println("testInstanceReuse() start");
+		
+		AudioCue cue = AudioCue.makeStereoCue(new float[200], "pool", 70);
+		int first = cue.obtainInstance();
+		cue.releaseInstance(first);
+		int second = cue.obtainInstance();
+		System.out.println("Released " + first + ", next obtained " 
+				+ second);
+		assert (second != first);
+		
+		boolean[] seen = new boolean[70];
+		seen[second] = true;
+		int obtained = 1;
+		int hook;
+		while ((hook = cue.obtainInstance()) != -1)
+		{
+			assert (!seen[hook]);
+			seen[hook] = true;
+			obtained++;
+		}
+		assert (obtained == 70);
+		
+		cue.releaseInstance(5);
+		assert (cue.obtainInstance() == 5);
+		System.out.println("asserts passed");
+		
+		return "testInstanceReuse() done";
+	}
 
+	/*
+	 * Renders a constant signal offline while the pan ramps 
+	 * from full left to full right over the default ramp, with
+	 * the CIRCULAR law. The gain of the left channel must follow
+	 * the law throughout the ramp, not the straight line between
+	 * its ends, which lies 3 dB below the law at the center.
+	 */
+	private String testPanRamp()
+	{
+		System.out.println("testPanRamp() start");
+		
+		float[] data = new float[44100 * 2];
+		Arrays.fill(data, 0.5f);
+		AudioCue cue = AudioCue.makeStereoCue(data, "dc", 1);
+		cue.setPanType(AudioCue.PanType.CIRCULAR);
+		int hook = cue.play(1, -1, 1, 0);
+		cue.setPan(hook, 1);
+		float[] out = cue.render(2048);
+		
+		// the pan moves by 2 / 1024 per frame
+		double maxError = 0;
+		for (int i = 0; i < 1024; i++)
+		{
+			double pan = -1 + i * 2 / 1024.0;
+			double expected = Math.cos(Math.PI * (1 + pan) / 4);
+			maxError = Math.max(maxError, 
+					Math.abs(out[i * 2] / 0.5 - expected));
+		}
+		System.out.println("Largest departure from the law: " 
+				+ maxError);
+		assert (maxError < 0.005);
+		System.out.println("asserts passed");
+		
+		return "testPanRamp() done";
+	}
+	
+	/*
+	 * Verifies that, once playing, rendering a buffer does 
+	 * not allocate on the heap. The AudioCue is routed to an 
+	 * AudioMixer that is never started, and the buffers are 
+	 * pulled via readTrack(), so no output line is needed.
+	 * Allocations are counted with the thread allocation 
+	 * counter of the HotSpot ThreadMXBean. A listener is 
+	 * registered, so the loop events raised while rendering
+	 * are included in the measurement.
+	 */
+	private String testRenderAllocation() throws IOException
+	{
+		System.out.println("testRenderAllocation() start");
+		
+		float[] data = new float[44100 * 2 * 4];
+		for (int i = 0; i < 44100 * 4; i++)
+		{
+			data[2 * i] = (float)(Math.sin(i * 0.015625));
+			data[2 * i + 1] = data[2 * i];
+		}
+		
+		int polyphony = 64;
+		AudioCue cue = AudioCue.makeStereoCue(data, "sine", polyphony);
+		AudioMixer audioMixer = new AudioMixer();
+		cue.open(audioMixer);
+		
+		AtomicInteger loopEvents = new AtomicInteger();
+		cue.addAudioCueListener(new AudioCueListener() {
+			public void audioCueOpened(long now, int threadPriority, 
+					int bufferSize, AudioCue source) {}
+			public void audioCueClosed(long now, AudioCue source) {}
+			public void instanceEventOccurred(AudioCueInstanceEvent event) 
+			{
+				if (event.type == Type.LOOP) loopEvents.incrementAndGet();
+			}
+		}, EnumSet.of(Type.LOOP));
+		
+		for (int i = 0; i < polyphony; i++)
+		{
+			cue.play(0.5, (i % 9 - 4) / 4.0, 0.5 + i / 32.0, -1);
+		}
+		
+		// warm up, so that the render loop gets compiled
+		for (int i = 0; i < 2000; i++)
+		{
+			cue.readTrack();
+		}
+
+		com.sun.management.ThreadMXBean threadMXBean = 
+				(com.sun.management.ThreadMXBean)
+					ManagementFactory.getThreadMXBean();
+		long id = Thread.currentThread().getId();
+		
+		// the cost of the measurement itself
+		long overhead = threadMXBean.getThreadAllocatedBytes(id);
+		overhead = threadMXBean.getThreadAllocatedBytes(id) - overhead;
+		
+		int blocks = 1000;
+		long before = threadMXBean.getThreadAllocatedBytes(id);
+		for (int i = 0; i < blocks; i++)
+		{
+			cue.readTrack();
+		}
+		long allocated = threadMXBean.getThreadAllocatedBytes(id) 
+				- before - overhead;
+		
+		System.out.println("Bytes allocated over " + blocks 
+				+ " buffers:" + allocated);
+		System.out.println("Loop events delivered: " + loopEvents.get()
+				+ ", dropped: " + cue.getDroppedEventCount());
+		cue.close();
+		
+		assert (allocated == 0);
+		System.out.println("asserts passed");
+		
+		return "testRenderAllocation() done";
+	}
+	
+	/*
+	 * Verifies that an instance scheduled to a frame of the 
+	 * clock begins sounding on exactly that frame. The AudioCue
+	 * is routed to an AudioMixer that is never started, so the 
+	 * clock stays at frame 0, and one buffer is pulled via 
+	 * mixTrack(). The cue is a constant signal, so the first 
+	 * non-zero frame of the buffer marks the start. The 
+	 * START_INSTANCE event must give the same frame.
+	 */
+	private String testScheduledStart() throws IOException, 
+		InterruptedException
+	{
+		System.out.println("testScheduledStart() start");
+		
+		float[] data = new float[44100 * 2];
+		Arrays.fill(data, 0.5f);
+		AudioCue cue = AudioCue.makeStereoCue(data, "dc", 4);
+		CompletableFuture<AudioCueInstanceEvent> started = 
+				new CompletableFuture<>();
+		cue.addAudioCueListener(new AudioCueListener() {
+			public void audioCueOpened(long now, int threadPriority, 
+					int bufferSize, AudioCue source) {}
+			public void audioCueClosed(long now, AudioCue source) {}
+			public void instanceEventOccurred(AudioCueInstanceEvent event) 
+			{
+				started.complete(event);
+			}
+		}, EnumSet.of(Type.START_INSTANCE));
+		AudioMixer audioMixer = new AudioMixer();
+		cue.open(audioMixer);
+		
+		long startFrame = cue.getFrameTime() + 300;
+		cue.play(1, 0, 1, 0, startFrame);
+		
+		float[] buffer = new float[audioMixer.bufferSize * 2];
+		cue.mixTrack(buffer, 0, audioMixer.bufferSize);
+		
+		int firstSounding = -1;
+		for (int i = 0; i < audioMixer.bufferSize; i++)
+		{
+			if (buffer[i * 2] != 0)
+			{
+				firstSounding = i;
+				break;
+			}
+		}
+		System.out.println("Scheduled for frame " + startFrame 
+				+ ", first sounding frame: " + firstSounding);
+		// the event is delivered by the dispatch thread
+		for (int i = 0; i < 100 && !started.isDone(); i++)
+		{
+			Thread.sleep(10);
+		}
+		AudioCueInstanceEvent event = started.getNow(null);
+		long renderFrame = event == null ? -1 : event.renderFrame;
+		System.out.println("START_INSTANCE render frame: " 
+				+ renderFrame);
+		cue.close();
+		
+		assert (firstSounding == startFrame);
+		assert (renderFrame == startFrame);
+		System.out.println("asserts passed");
+		
+		return "testScheduledStart() done";
+	}
+	
+	/*
+	 * Verifies that the estimates of when events are heard move
+	 * forward along with the rendered frames. A short cue loops 
+	 * for a second through a NullSink, which plays at the pace of
+	 * real time, and the render frame and presentation time of 
+	 * each LOOP event are collected. Both must increase from 
+	 * each event to the next.
+	 */
+	private String testPresentationTime() throws InterruptedException,
+		LineUnavailableException
+	{
+		System.out.println("testPresentationTime() start");
+		
+		float[] data = new float[2205 * 2];
+		Arrays.fill(data, 0.5f);
+		AudioCue cue = AudioCue.makeStereoCue(data, "dc", 1);
+		List<long[]> loops = new ArrayList<>();
+		cue.addAudioCueListener(new AudioCueListener() {
+			public void audioCueOpened(long now, int threadPriority, 
+					int bufferSize, AudioCue source) {}
+			public void audioCueClosed(long now, AudioCue source) {}
+			public void instanceEventOccurred(AudioCueInstanceEvent event) 
+			{
+				synchronized (loops)
+				{
+					loops.add(new long[] {event.renderFrame, 
+							event.presentationTime});
+				}
+			}
+		}, EnumSet.of(Type.LOOP));
+		
+		cue.setOutputSink(new NullSink());
+		cue.open(1024);
+		cue.play(1, 0, 1, -1);
+		Thread.sleep(1000);
+		cue.close();
+		
+		int increasing = 0;
+		synchronized (loops)
+		{
+			for (int i = 1; i < loops.size(); i++)
+			{
+				long[] prev = loops.get(i - 1);
+				long[] curr = loops.get(i);
+				if (curr[0] > prev[0] && curr[1] > prev[1]) increasing++;
+			}
+			System.out.println("LOOP events: " + loops.size() 
+					+ ", increasing: " + increasing);
+			if (loops.size() > 1)
+			{
+				long[] first = loops.get(0);
+				long[] last = loops.get(loops.size() - 1);
+				System.out.println("Frames " + first[0] + " to " + last[0] 
+						+ " estimated over " 
+						+ (last[1] - first[1]) / 1_000_000 + " ms");
+			}
+			
+			assert (loops.size() >= 10);
+			assert (increasing == loops.size() - 1);
+		}
+		System.out.println("asserts passed");
+		
+		return "testPresentationTime() done";
+	}
+	
+	/*
+	 * Plays through the OutputSinks that need no sound device.
+	 * The output written to a RingBufferSink is read back and 
+	 * checked for sound, and an AudioCue written to a NullSink 
+	 * is checked to render at the pace of real time. A 
+	 * WavFileSink opened a second time must rewrite its file.
+	 */
+	private String testOutputSinks() throws LineUnavailableException, 
+		InterruptedException, IOException, UnsupportedAudioFileException
+	{
+		System.out.println("testOutputSinks() start");
+		
+		float[] data = new float[44100 * 2];
+		Arrays.fill(data, 0.5f);
+		
+		AudioCue cue = AudioCue.makeStereoCue(data, "dc", 1);
+		RingBufferSink ring = new RingBufferSink(1024 * 4 * 4);
+		cue.setOutputSink(ring);
+		cue.open(1024);
+		cue.play();
+		
+		// the reader takes the place of the sound device
+		byte[] bytes = new byte[1024 * 4 * 8];
+		int read = 0;
+		while (read < bytes.length)
+		{
+			read += ring.read(bytes, read, bytes.length - read);
+			Thread.sleep(1);
+		}
+		cue.close();
+		ring.close();
+		
+		int soundingFrames = 0;
+		for (int i = 0; i < bytes.length; i += 4)
+		{
+			if (bytes[i] != 0 || bytes[i + 1] != 0) soundingFrames++;
+		}
+		System.out.println("RingBufferSink, frames read: " 
+				+ bytes.length / 4 + ", sounding: " + soundingFrames);
+		
+		cue = AudioCue.makeStereoCue(data, "dc", 1);
+		cue.setOutputSink(new NullSink());
+		cue.open(1024);
+		Thread.sleep(1000);
+		long frames = cue.getFrameTime();
+		cue.close();
+		System.out.println("NullSink, frames rendered in one second: " 
+				+ frames);
+		
+		// a sink may be opened again, and rewrites its file
+		File file = File.createTempFile("sink", ".wav");
+		file.deleteOnExit();
+		WavFileSink wav = new WavFileSink(file);
+		for (int length : new int[] {4096, 1024})
+		{
+			wav.open(AudioCue.audioFormat, length);
+			wav.write(new byte[length], 0, length);
+			wav.close();
+		}
+		long wavFrames = AudioSystem.getAudioFileFormat(file)
+				.getFrameLength();
+		System.out.println("WavFileSink, frames after reopening: " 
+				+ wavFrames);
+		file.delete();
+		
+		assert (soundingFrames > 0);
+		assert (frames > 44100 * 0.8 && frames < 44100 * 1.2);
+		assert (wavFrames == 256);
+		System.out.println("asserts passed");
+		
+		return "testOutputSinks() done";
+	}
+	
+	/*
+	 * On an AudioMixer that is not started, no audio thread 
+	 * drains the command queue, so control calls must be applied
+	 * at once: many more calls than the queue holds must not 
+	 * overflow it. On a started mixer, a burst of calls that 
+	 * fills the queue must wait for room rather than fail, a 
+	 * short cue must restart as soon as it has finished, and a
+	 * released instance must be inactive as soon as 
+	 * releaseInstance returns, and back in the pool once the 
+	 * audio thread has applied the release.
+	 */
+	private String testCommandDelivery() throws LineUnavailableException, 
+		InterruptedException
+	{
+		System.out.println("testCommandDelivery() start");
+		
+		AudioCue cue = AudioCue.makeStereoCue(new float[44100 * 2], 
+				"silence", 2);
+		AudioMixer audioMixer = new AudioMixer(null, 256, 10);
+		cue.open(audioMixer);
+		int hook = cue.obtainInstance();
+		for (int i = 0; i < 100_000; i++)
+		{
+			cue.setVolume(hook, (i % 100) / 100.0);
+		}
+		System.out.println("Volume after 100000 calls, mixer stopped: " 
+				+ cue.getVolume(hook));
+		assert (Math.abs(cue.getVolume(hook) - 0.99) < 1e-6);
+		
+		audioMixer.setOutputSink(new NullSink());
+		audioMixer.start();
+		int other = cue.obtainInstance();
+		for (int i = 0; i < 10_000; i++)
+		{
+			cue.setVolume(other, (i % 100) / 100.0);
+		}
+		
+		// a cue shorter than a buffer, finished and recycled by
+		// the audio thread while it is being restarted
+		AudioCue click = AudioCue.makeStereoCue(new float[64 * 2], 
+				"click", 1);
+		click.open(audioMixer);
+		for (int i = 0; i < 100; i++)
+		{
+			int clickHook;
+			while ((clickHook = click.obtainInstance()) == -1) 
+			{
+				Thread.yield();
+			}
+			click.setRecycleWhenDone(clickHook, true);
+			click.start(clickHook);
+		}
+		click.close();
+		
+		cue.releaseInstance(hook);
+		assert (!cue.getIsActive(hook));
+		cue.releaseInstance(other);
+		Thread.sleep(200);
+		int obtained = 0;
+		while (cue.obtainInstance() != -1) obtained++;
+		System.out.println("Instances back in the pool: " + obtained);
+		audioMixer.stop();
+		cue.close();
+		
+		assert (obtained == 2);
+		System.out.println("asserts passed");
+		
+		return "testCommandDelivery() done";
+	}
+	
+	/*
+	 * Renders an AudioMixer offline, with one cue started at 
+	 * once and a second scheduled to start on a frame lying past
+	 * the first block of the mixer. The first cue must sound from
+	 * frame 0 and the second must double the level from exactly
+	 * its scheduled frame.
+	 */
+	private String testOfflineRender() throws IllegalStateException,
+		LineUnavailableException
+	{
+		System.out.println("testOfflineRender() start");
+		
+		float[] data = new float[44100 * 2];
+		Arrays.fill(data, 0.25f);
+		AudioCue cue = AudioCue.makeStereoCue(data, "dc", 2);
+		AudioMixer audioMixer = new AudioMixer();
+		cue.open(audioMixer);
+		
+		long startFrame = audioMixer.getFrameTime() 
+				+ audioMixer.bufferSize + 123;
+		cue.play();
+		cue.play(1, 0, 1, 0, startFrame);
+		
+		int frames = audioMixer.bufferSize * 4;
+		long t0 = System.nanoTime();
+		float[] out = audioMixer.render(frames);
+		long elapsed = System.nanoTime() - t0;
+		
+		int firstDoubled = -1;
+		for (int i = 0; i < frames; i++)
+		{
+			if (out[i * 2] > out[0] * 1.5f)
+			{
+				firstDoubled = i;
+				break;
+			}
+		}
+		System.out.println("Scheduled for frame " + startFrame 
+				+ ", first doubled frame: " + firstDoubled 
+				+ ", rendered " + frames + " frames in " 
+				+ elapsed / 1000 + " microseconds");
+		cue.close();
+		
+		assert (out[0] != 0);
+		assert (firstDoubled == startFrame);
+		assert (audioMixer.getFrameTime() == frames);
+		System.out.println("asserts passed");
+		
+		return "testOfflineRender() done";
+	}
+	
+	/*
+	 * Writes a 1 kHz sine to temporary files in formats other 
+	 * than "CD Quality", loads each as an AudioCue, and compares
+	 * an offline render of the cue with the sine as it should 
+	 * sound at 44100 frames per second. The tolerance allows for
+	 * 8-bit quantization.
+	 */
+	private String testLoadFormats() throws IOException, 
+		UnsupportedAudioFileException
+	{
+		System.out.println("testLoadFormats() start");
+		
+		Object[][] cases = {
+			{new AudioFormat(AudioFormat.Encoding.PCM_UNSIGNED, 
+					22050, 8, 1, 1, 22050, false), 
+					AudioFileFormat.Type.WAVE},
+			{new AudioFormat(48000, 16, 1, true, false), 
+					AudioFileFormat.Type.WAVE},
+			{new AudioFormat(44100, 16, 2, true, true), 
+					AudioFileFormat.Type.AIFF}};
+		
+		for (Object[] c : cases)
+		{
+			AudioFormat format = (AudioFormat)c[0];
+			float rate = format.getSampleRate();
+			int frames = (int)rate;
+			int sampleBytes = format.getSampleSizeInBits() / 8;
+			byte[] bytes = new byte[frames * format.getFrameSize()];
+			for (int i = 0, p = 0; i < frames; i++)
+			{
+				double v = 0.5 * Math.sin(2 * Math.PI * 1000 * i / rate);
+				for (int ch = 0; ch < format.getChannels(); ch++)
+				{
+					if (sampleBytes == 1)
+					{
+						bytes[p++] = (byte)(Math.round(v * 127) + 128);
+						continue;
+					}
+					int sample = (int)Math.round(v * 32767);
+					bytes[p++] = (byte)(format.isBigEndian() 
+							? sample >> 8 : sample);
+					bytes[p++] = (byte)(format.isBigEndian() 
+							? sample : sample >> 8);
+				}
+			}
+			File file = File.createTempFile("format", "." 
+					+ ((AudioFileFormat.Type)c[1]).getExtension());
+			file.deleteOnExit();
+			AudioSystem.write(new AudioInputStream(
+					new ByteArrayInputStream(bytes), format, frames), 
+					(AudioFileFormat.Type)c[1], file);
+			
+			AudioCue cue = AudioCue.makeStereoCue(file.toURI().toURL(), 1);
+			cue.play();
+			float[] out = cue.render((int)cue.getFrameLength());
+			
+			double maxError = 0;
+			for (int i = 64; i < out.length / 2 - 64; i++)
+			{
+				double v = 0.5 * Math.sin(2 * Math.PI * 1000 * i / 44100.0);
+				maxError = Math.max(maxError, Math.abs(out[i * 2] - v));
+				maxError = Math.max(maxError, Math.abs(out[i * 2 + 1] - v));
+			}
+			System.out.println(format + ": " + cue.getFrameLength() 
+					+ " frames, max error " + maxError);
+			file.delete();
+			
+			assert (cue.getFrameLength() == 44100);
+			assert (maxError < 0.02);
+		}
+		System.out.println("asserts passed");
+		
+		return "testLoadFormats() done";
+	}
+	
+	/*
+	 * Loads the wav files of the support pack, one file that is
+	 * not audio, and one URL that fails with an Error, with an 
+	 * AudioCueLoader. The cues must render the same frames as 
+	 * those loaded one at a time, the bad file must fail with an
+	 * UnsupportedAudioFileException, the failing URL with its 
+	 * Error, and the progress must reach 1 once all are done.
+	 */
+	private String testBatchLoad() throws IOException, 
+		UnsupportedAudioFileException, InterruptedException
+	{
+		System.out.println("testBatchLoad() start");
+		
+		List<URL> urls = new ArrayList<>();
+		for (String name : new String[] {"a3.wav", "frog.wav", 
+				"gunshot.wav", "shortshot.wav"})
+		{
+			urls.add(getClass().getResource("res/" + name));
+		}
+		urls.add(getClass().getResource("TestAudioCue.class"));
+		urls.add(makeFailingURL());
+		
+		AudioCueLoader loader = new AudioCueLoader(2);
+		List<CompletableFuture<AudioCue>> futures = 
+				loader.loadAll(urls, new int[] {1, 2, 3, 4, 1, 1});
+		
+		for (int i = 0; i < 4; i++)
+		{
+			AudioCue cue = futures.get(i).join();
+			AudioCue expected = AudioCue.makeStereoCue(urls.get(i), 1);
+			System.out.println(cue.getName() + ": " 
+					+ cue.getFrameLength() + " frames");
+			assert (cue.getFrameLength() == expected.getFrameLength());
+			assert (cue.getName().equals(expected.getName()));
+			
+			int frames = (int)expected.getFrameLength();
+			cue.play(1, 0, 1, 0);
+			expected.play(1, 0, 1, 0);
+			assert (Arrays.equals(cue.render(frames), 
+					expected.render(frames)));
+		}
+		
+		Throwable failure = null;
+		try
+		{
+			futures.get(4).get();
+		}
+		catch (ExecutionException e)
+		{
+			failure = e.getCause();
+		}
+		Throwable error = null;
+		try
+		{
+			futures.get(5).get();
+		}
+		catch (ExecutionException e)
+		{
+			error = e.getCause();
+		}
+		System.out.println("Not audio: " + failure);
+		System.out.println("Failing: " + error);
+		System.out.println("Progress: " + loader.getProgress() 
+				+ ", completed: " + loader.getCompletedCount() 
+				+ ", failed: " + loader.getFailedCount());
+		loader.close();
+		
+		assert (failure instanceof UnsupportedAudioFileException);
+		assert (error != null && error.getClass() == Error.class);
+		assert (loader.getProgress() == 1);
+		assert (loader.getCompletedCount() == 4);
+		assert (loader.getFailedCount() == 2);
+		System.out.println("asserts passed");
+		
+		return "testBatchLoad() done";
+	}
+	
+	/*
+	 * Makes cues through an AudioCueCache with a budget of 3 MB.
+	 * Two cues of a3.wav (2646000 bytes of data) share one load. 
+	 * Once both are released, a3.wav stays cached until the cues
+	 * of frog.wav and gunshot.wav push the cache over budget, 
+	 * when it is evicted as the least recently used unreferenced
+	 * entry. A load failing with an Error must not stay cached,
+	 * nor data whose cue can not be made. 
+	 * Then eight cues of a3.wav requested at once through
+	 * an AudioCueLoader must share a single load.
+	 */
+	private String testCache() throws IOException, 
+		UnsupportedAudioFileException
+	{
+		System.out.println("testCache() start");
+		
+		URL a3 = getClass().getResource("res/a3.wav");
+		URL frog = getClass().getResource("res/frog.wav");
+		URL gunshot = getClass().getResource("res/gunshot.wav");
+		AudioCueCache cache = new AudioCueCache(3_000_000);
+		
+		AudioCue cue1 = cache.makeStereoCue(a3, 1);
+		AudioCue cue2 = cache.makeStereoCue(a3, 4);
+		assert (cache.getMissCount() == 1 && cache.getHitCount() == 1);
+		assert (cache.getCachedBytes() == 330750 * 8);
+		
+		cache.makeStereoCue(frog, 1);
+		cache.release(cue1);
+		cache.release(cue2);
+		assert (cache.getEntryCount() == 2);
+		assert (cache.getEvictionCount() == 0);
+		
+		boolean rejected = false;
+		try
+		{
+			cache.release(cue1);
+		}
+		catch (IllegalArgumentException e)
+		{
+			rejected = true;
+		}
+		assert (rejected);
+		
+		cache.makeStereoCue(gunshot, 1);
+		System.out.println("After gunshot.wav: " + cache.getEntryCount() 
+				+ " entries, " + cache.getCachedBytes() + " bytes, " 
+				+ cache.getEvictionCount() + " evicted");
+		assert (cache.getEvictionCount() == 1);
+		assert (cache.getEntryCount() == 2);
+		assert (cache.getCachedBytes() == (19315 + 33065) * 8);
+		
+		// a load that fails with an Error leaves nothing cached, 
+		// and a second request loads again rather than waiting
+		URL failing = makeFailingURL();
+		for (int i = 0; i < 2; i++)
+		{
+			boolean thrown = false;
+			try
+			{
+				cache.makeStereoCue(failing, 1);
+			}
+			catch (Error e)
+			{
+				thrown = e.getMessage().equals("failing.wav");
+			}
+			assert (thrown);
+		}
+		assert (cache.getEntryCount() == 2);
+		
+		// nor does a cue that can not be made hold on to its data
+		AudioCueCache empty = new AudioCueCache(0);
+		boolean refused = false;
+		try
+		{
+			empty.makeStereoCue(frog, -1);
+		}
+		catch (RuntimeException e)
+		{
+			refused = true;
+		}
+		assert (refused);
+		assert (empty.getEntryCount() == 0);
+		
+		cache = new AudioCueCache(Long.MAX_VALUE);
+		List<URL> urls = new ArrayList<>();
+		for (int i = 0; i < 8; i++) urls.add(a3);
+		try (AudioCueLoader loader = new AudioCueLoader(4, cache))
+		{
+			for (CompletableFuture<AudioCue> future : loader.loadAll(
+					urls, new int[] {1, 1, 1, 1, 1, 1, 1, 1}))
+			{
+				future.join();
+			}
+		}
+		System.out.println("Concurrent: " + cache.getMissCount() 
+				+ " misses, " + cache.getHitCount() + " hits");
+		assert (cache.getMissCount() == 1 && cache.getHitCount() == 7);
+		assert (cache.getCachedBytes() == 330750 * 8);
+		System.out.println("asserts passed");
+		
+		return "testCache() done";
+	}
+	
+	/*
+	 * Renders the same 16-bit noise from a cue of each 
+	 * SampleStorage form with each Interpolation, at unity speed, at speeds 
+	 * that read fractional positions, and at the top speed, 
+	 * looping once so that both ends of the cue are crossed. 
+	 * The renders must agree to within float rounding.
+	 */
+	private String testSampleStorage()
+	{
+		System.out.println("testSampleStorage() start");
+		
+		Random random = new Random(7);
+		float[] data = new float[3000 * 2];
+		for (int i = 0; i < data.length; i++)
+		{
+			data[i] = (random.nextInt(65535) - 32767) / 32767f;
+		}
+		double[] speeds = {1, 0.83, 2.5, 8};
+		
+		float maxError = 0;
+		for (Interpolation interpolation : Interpolation.values())
+		{
+			for (double speed : speeds)
+			{
+				float[][] outs = new float[SampleStorage.values().length][];
+				for (SampleStorage storage : SampleStorage.values())
+				{
+					AudioCue cue = AudioCue.makeStereoCue(data, 
+							"noise", 1, storage);
+					cue.setInterpolation(interpolation);
+					cue.play(1, 0, speed, 1);
+					outs[storage.ordinal()] = cue.render(7000);
+				}
+				for (float[] out : outs)
+				{
+					for (int i = 0; i < out.length; i++)
+					{
+						maxError = Math.max(maxError, 
+								Math.abs(outs[0][i] - out[i]));
+					}
+				}
+			}
+		}
+		System.out.println("Largest difference from FLOAT: " 
+				+ maxError);
+		assert (maxError < 1e-5f);
+		System.out.println("asserts passed");
+		
+		return "testSampleStorage() done";
+	}
+	
+	/*
+	 * Loads MAPPED cues from a3.wav, which is mapped in place, 
+	 * and from a 16-bit mono file and an 8-bit file at 22050 
+	 * frames per second, which are converted into temporary 
+	 * files. Each must render as its FLOAT cue does, to within
+	 * the rounding of the 16-bit samples. The frame lengths show
+	 * that the 8-bit file is converted to 44100 frames per 
+	 * second, as with FLOAT. An RF64 file with no size for its
+	 * data must fail rather than load as an empty cue.
+	 */
+	private String testMappedStorage() throws IOException, 
+		UnsupportedAudioFileException
+	{
+		System.out.println("testMappedStorage() start");
+		
+		List<URL> urls = new ArrayList<>();
+		urls.add(getClass().getResource("res/a3.wav"));
+		for (AudioFormat format : new AudioFormat[] {
+				new AudioFormat(44100, 16, 1, true, false),
+				new AudioFormat(22050, 8, 1, true, false)})
+		{
+			// more than one slice of the parallel decode
+			int frames = 200000;
+			byte[] bytes = new byte[frames * format.getFrameSize()];
+			new Random(3).nextBytes(bytes);
+			// a quarter of full scale, so that the overshoot of 
+			// the resampling is not clipped by the 16-bit samples
+			for (int i = format.getFrameSize() - 1; i < bytes.length; 
+					i += format.getFrameSize())
+			{
+				bytes[i] >>= 2;
+			}
+			File file = File.createTempFile("mapped", ".wav");
+			file.deleteOnExit();
+			AudioSystem.write(new AudioInputStream(
+					new ByteArrayInputStream(bytes), format, frames), 
+					AudioFileFormat.Type.WAVE, file);
+			urls.add(file.toURI().toURL());
+		}
+		
+		for (URL url : urls)
+		{
+			AudioCue expected = AudioCue.makeStereoCue(url, 1);
+			AudioCue cue = AudioCue.makeStereoCue(url, 1, 
+					SampleStorage.MAPPED);
+			float[][] outs = new float[2][];
+			int i = 0;
+			for (AudioCue c : new AudioCue[] {expected, cue})
+			{
+				c.play(1, 0, 0.83, 0);
+				outs[i++] = c.render((int)expected.getFrameLength());
+			}
+			float maxError = 0;
+			for (i = 0; i < outs[0].length; i++)
+			{
+				maxError = Math.max(maxError, 
+						Math.abs(outs[0][i] - outs[1][i]));
+			}
+			System.out.println(cue.getName() + ": " 
+					+ cue.getFrameLength() + " frames, max error " 
+					+ maxError);
+			
+			assert (cue.getFrameLength() == expected.getFrameLength());
+			assert (maxError < 2e-5f);
+		}
+		
+		// an RF64 file whose data size is given by no ds64 chunk
+		// is not mapped as an empty cue, but read as a stream, 
+		// which AudioSystem does not support
+		ByteBuffer rf64 = ByteBuffer.allocate(44 + 4000)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		rf64.put("RF64".getBytes(StandardCharsets.US_ASCII)).putInt(-1)
+				.put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII))
+				.putInt(16).putShort((short)1).putShort((short)2)
+				.putInt(44100).putInt(44100 * 4)
+				.putShort((short)4).putShort((short)16)
+				.put("data".getBytes(StandardCharsets.US_ASCII)).putInt(-1);
+		File file = File.createTempFile("mapped", ".wav");
+		file.deleteOnExit();
+		Files.write(file.toPath(), rf64.array());
+		boolean unsupported = false;
+		try
+		{
+			AudioCue.makeStereoCue(file.toURI().toURL(), 1, 
+					SampleStorage.MAPPED);
+		}
+		catch (UnsupportedAudioFileException e)
+		{
+			unsupported = true;
+		}
+		System.out.println("RF64 without ds64 unsupported: " 
+				+ unsupported);
+		assert (unsupported);
+		System.out.println("asserts passed");
+		
+		return "testMappedStorage() done";
+	}
+	
+	/*
+	 * A URL whose stream fails with an Error, as a load would if
+	 * memory ran out.
+	 */
+	private static URL makeFailingURL() throws IOException
+	{
+		return new URL("test", null, -1, "failing.wav", 
+				new URLStreamHandler() {
+			protected URLConnection openConnection(URL url) 
+			{
+				return new URLConnection(url) {
+					public void connect() {}
+					public InputStream getInputStream() 
+					{
+						throw new Error("failing.wav");
+					}
+				};
+			}
+		});
+	}
+	
 	/*
 	 * The following methods implement AudioCueListener.
 	 * 